@@ -0,0 +1,54 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.network.connection.VanillaWireOutPublisher;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+
+/**
+ * The server for the client benchmarks, which replies to each request with its tid and payload.
+ */
+final class EchoServer {
+
+    private EchoServer() {
+    }
+
+    /**
+     * @return an acceptor to add to an event loop, serving each connection with {@code strategy}
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @NotNull
+    static AcceptorEventHandler acceptor(@NotNull final String hostPort,
+                                         @NotNull final ServerThreadingStrategy strategy) throws IOException {
+        return new AcceptorEventHandler(hostPort,
+                nc -> {
+                    final NetworkContext networkContext = (NetworkContext) nc;
+                    networkContext.wireOutPublisher(new VanillaWireOutPublisher(WireType.TEXT));
+                    final TcpEventHandler handler = new TcpEventHandler(networkContext);
+                    handler.tcpHandler(new WireTypeSniffingTcpHandler(handler, n -> new Handler()));
+                    return handler;
+                },
+                () -> new VanillaNetworkContext().serverThreadingStrategy(strategy));
+    }
+
+    static final class Handler<T extends NetworkContext<T>> extends WireTcpHandler<T> {
+
+        @Override
+        protected void onRead(@NotNull final DocumentContext in,
+                              @NotNull final WireOut outWire) {
+            if (in.isMetaData())
+                outWire.writeDocument(true, meta -> meta.write("tid")
+                        .int64(in.wire().read("tid").int64()));
+            else
+                outWire.writeDocument(false, data -> data.write("payloadResponse")
+                        .text(in.wire().read("payload").text()));
+        }
+
+        @Override
+        protected void onInitialize() {
+        }
+    }
+}
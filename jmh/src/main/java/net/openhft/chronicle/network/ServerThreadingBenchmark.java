@@ -0,0 +1,121 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.network.api.TcpHandler;
+import net.openhft.chronicle.threads.EventGroup;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Echoes a small message on every connection, then waits for all the replies, with each {@link
+ * ServerThreadingStrategy}.
+ * <p>
+ * The server's buffers are made smaller so 100k connections fit in memory. The open file limit has to allow two
+ * sockets per connection, e.g. {@code ulimit -n 250000}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-DTcpEventHandler.tcpBufferSize=16384", "-XX:MaxDirectMemorySize=16g"})
+public class ServerThreadingBenchmark {
+
+    private static final int MESSAGE_SIZE = 8;
+
+    @Param({"100", "10000", "100000"})
+    public int connections;
+
+    @Param({"SINGLE_THREADED", "CONCURRENT", "VIRTUAL_THREAD"})
+    public ServerThreadingStrategy strategy;
+
+    private EventLoop eg;
+    private SocketChannel[] clients;
+    private ByteBuffer buffer;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(ServerThreadingBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Setup
+    public void setUp() throws IOException {
+        String desc = "host.port";
+        TCPRegistry.createServerSocketChannelFor(desc);
+        eg = new EventGroup(true);
+        eg.start();
+        eg.addHandler(new AcceptorEventHandler(desc,
+                nc -> {
+                    final TcpEventHandler handler = new TcpEventHandler((NetworkContext) nc);
+                    handler.tcpHandler(new EchoHandler());
+                    return handler;
+                },
+                () -> new VanillaNetworkContext().serverThreadingStrategy(strategy)));
+
+        final InetSocketAddress address = TCPRegistry.lookup(desc);
+        clients = new SocketChannel[connections];
+        for (int i = 0; i < connections; i++) {
+            clients[i] = SocketChannel.open(address);
+            clients[i].socket().setTcpNoDelay(true);
+        }
+        buffer = ByteBuffer.allocateDirect(MESSAGE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Closeable.closeQuietly((Object[]) clients);
+        eg.stop();
+        eg.close();
+        TCPRegistry.reset();
+    }
+
+    @Benchmark
+    public long echoAll() throws IOException {
+        long sum = 0;
+        for (int i = 0; i < connections; i++) {
+            buffer.clear();
+            buffer.putLong(0, i);
+            while (buffer.hasRemaining())
+                clients[i].write(buffer);
+        }
+        for (SocketChannel client : clients) {
+            buffer.clear();
+            while (buffer.hasRemaining())
+                if (client.read(buffer) < 0)
+                    throw new IOException("closed");
+            sum += buffer.getLong(0);
+        }
+        return sum;
+    }
+
+    static final class EchoHandler<T extends NetworkContext<T>> extends AbstractCloseable implements TcpHandler<T> {
+
+        @Override
+        public void process(@NotNull final Bytes in, @NotNull final Bytes out, final T nc) {
+            final long toWrite = Math.min(in.readRemaining(), out.writeRemaining());
+            out.write(in, in.readPosition(), toWrite);
+            in.readSkip(toWrite);
+        }
+
+        @Override
+        protected void performClose() {
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
+import net.openhft.chronicle.network.tcp.ChronicleSocketChannelFactory;
+import net.openhft.chronicle.wire.Wires;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of receiving a batch of small size prefixed frames over loopback with each of the
+ * {@link TcpEventHandler.SocketReader}s.
+ */
+@State(Scope.Thread)
+public class SocketReaderBenchmark {
+
+    private static final int FRAMES = 32;
+
+    @Param({"16", "256"})
+    public int frameSize;
+
+    private ServerSocketChannel serverChannel;
+    private SocketChannel writer;
+    private ChronicleSocketChannel channel;
+    private ByteBuffer batch;
+    private Bytes<ByteBuffer> bytes;
+    private TcpEventHandler.SocketReader defaultReader;
+    private ReadWithFlowControl readWithFlowControl;
+    private FramingSocketReader framingReader;
+
+    public static void main(String[] args) throws RunnerException {
+        int time = Jvm.getBoolean("longTest") ? 30 : 2;
+        Options opt = new OptionsBuilder()
+                .include(SocketReaderBenchmark.class.getSimpleName())
+                .warmupIterations(5)
+                .forks(1)
+                .mode(Mode.SampleTime)
+                .measurementTime(TimeValue.seconds(time))
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("localhost", 0));
+        writer = SocketChannel.open(serverChannel.getLocalAddress());
+        writer.socket().setTcpNoDelay(true);
+        final SocketChannel accepted = serverChannel.accept();
+        accepted.configureBlocking(false);
+        channel = ChronicleSocketChannelFactory.wrap(accepted);
+
+        batch = ByteBuffer.allocateDirect(FRAMES * (4 + frameSize)).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < FRAMES; i++) {
+            batch.putInt(frameSize);
+            for (int j = 0; j < frameSize; j++)
+                batch.put((byte) j);
+        }
+
+        bytes = Bytes.elasticByteBuffer(64 << 10);
+        defaultReader = new TcpEventHandler.DefaultSocketReader();
+        readWithFlowControl = new ReadWithFlowControl();
+        framingReader = new FramingSocketReader();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        channel.close();
+        writer.close();
+        serverChannel.close();
+        bytes.releaseLast();
+    }
+
+    @Benchmark
+    public int defaultReader() throws IOException {
+        send();
+        clear();
+        final ByteBuffer bb = bytes.underlyingObject();
+        int frames = 0;
+        while (frames < FRAMES) {
+            if (defaultReader.read(channel, bytes) < 0)
+                throw new IOException("closed");
+            bytes.readLimit(bb.position());
+            // the framing is left to the handler
+            while (bytes.readRemaining() >= 4) {
+                final int length = Wires.lengthOf(bytes.readInt(bytes.readPosition()));
+                if (bytes.readRemaining() < 4 + length)
+                    break;
+                bytes.readSkip(4 + length);
+                frames++;
+            }
+        }
+        return frames;
+    }
+
+    @Benchmark
+    public int readWithFlowControl() throws IOException {
+        send();
+        int frames = 0;
+        while (frames < FRAMES) {
+            if (readWithFlowControl.read(channel, bytes) > 0)
+                frames++;
+        }
+        return frames;
+    }
+
+    @Benchmark
+    public int framingReader() throws IOException {
+        send();
+        clear();
+        int frames = 0;
+        while (frames < FRAMES) {
+            if (framingReader.read(channel, bytes) < 0)
+                throw new IOException("closed");
+            final int count = framingReader.frames();
+            if (count == 0)
+                continue;
+            bytes.readLimit(bytes.underlyingObject().position());
+            final int last = count - 1;
+            bytes.readPosition(framingReader.offset(last) + 4 + framingReader.length(last));
+            frames += count;
+        }
+        return frames;
+    }
+
+    private void send() throws IOException {
+        batch.clear();
+        while (batch.hasRemaining())
+            writer.write(batch);
+    }
+
+    private void clear() {
+        bytes.clear();
+        bytes.underlyingObject().clear();
+    }
+}
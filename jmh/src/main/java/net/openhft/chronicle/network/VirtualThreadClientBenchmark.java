@@ -0,0 +1,141 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import net.openhft.chronicle.network.connection.TcpChannelHub;
+import net.openhft.chronicle.threads.EventGroup;
+import net.openhft.chronicle.threads.Threads;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.openhft.chronicle.network.connection.SocketAddressSupplier.uri;
+
+/**
+ * Makes blocking sync requests to an echo server from a thread per request, a virtual thread where the JVM has them
+ * (Java 21+), otherwise a pool of platform threads. Compares the default client with {@code tcp.client.virtualThreads}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+public class VirtualThreadClientBenchmark {
+
+    private static final WireType WIRE_TYPE = WireType.BINARY;
+    private static final String MESSAGE = "<my message>";
+    private static final long TIMEOUT_MS = 60_000;
+
+    @Param({"1000", "100000", "1000000"})
+    public int requests;
+
+    // has to be set before TcpChannelHub is loaded, which works as each set of parameters runs in its own fork
+    @Param({"false", "true"})
+    public String clientVirtualThreads;
+
+    private EventLoop eg;
+    private TcpChannelHub hub;
+    private ExecutorService executor;
+
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder()
+                .include(VirtualThreadClientBenchmark.class.getSimpleName())
+                .warmupIterations(3)
+                .measurementIterations(5)
+                .forks(1)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * @return an executor which starts a virtual thread per task, or a fixed pool of platform threads before Java 21
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            Jvm.warn().on(VirtualThreadClientBenchmark.class, "virtual threads are not available, using 256 platform threads");
+            return Executors.newFixedThreadPool(256);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        System.setProperty("tcp.client.virtualThreads", clientVirtualThreads);
+
+        String desc = "host.port";
+        TCPRegistry.createServerSocketChannelFor(desc);
+        eg = new EventGroup(true);
+        eg.start();
+        eg.addHandler(EchoServer.acceptor(desc, ServerThreadingStrategy.SINGLE_THREADED));
+        hub = new TcpChannelHub(null, eg, WIRE_TYPE, "", uri(desc), false, null, HandlerPriority.MONITOR);
+        // writeCombined() doesn't wait for the connection
+        final long endMs = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!hub.isOpen()) {
+            if (System.currentTimeMillis() > endMs)
+                throw new IllegalStateException("unable to connect to " + desc);
+            Jvm.pause(1);
+        }
+        executor = newThreadPerTaskExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        Threads.shutdown(executor);
+        hub.close();
+        eg.stop();
+        TcpChannelHub.closeAllHubs();
+        TCPRegistry.reset();
+    }
+
+    @Benchmark
+    public int requests() throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(requests);
+        final AtomicInteger replies = new AtomicInteger();
+        for (int i = 0; i < requests; i++) {
+            executor.execute(() -> {
+                try {
+                    if (MESSAGE.equals(request()))
+                        replies.incrementAndGet();
+                } catch (TimeoutException e) {
+                    Jvm.warn().on(VirtualThreadClientBenchmark.class, e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        if (replies.get() != requests)
+            throw new IllegalStateException("replies=" + replies + ", requests=" + requests);
+        return replies.get();
+    }
+
+    private String request() throws TimeoutException {
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        hub.writeCombined(w -> {
+            w.writeDocument(true, m -> m.writeEventName("tid").int64(tid));
+            w.writeDocument(false, d -> d.writeEventName("payload").text(MESSAGE));
+        });
+
+        final Wire reply = hub.proxyReply(TIMEOUT_MS, tid);
+        try {
+            final String[] text = {null};
+            reply.readDocument(null, data -> text[0] = data.readEventName(new StringBuilder()).text());
+            return text[0];
+        } finally {
+            hub.releaseReply();
+        }
+    }
+}
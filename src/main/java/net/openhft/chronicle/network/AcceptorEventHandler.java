@@ -33,6 +33,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.channels.AsynchronousCloseException;
 import java.nio.channels.ClosedChannelException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -49,6 +51,8 @@ public class AcceptorEventHandler<T extends NetworkContext<T>> extends AbstractC
     private final Supplier<T> ncFactory;
     private final String hostPort;
     private final AcceptStrategy acceptStrategy;
+    // the connections served by a thread of their own, which are closed with the acceptor
+    private final Set<TcpEventHandler<T>> connectionThreadHandlers = ConcurrentHashMap.newKeySet();
 
     private EventLoop eventLoop;
 
@@ -95,7 +99,18 @@ public class AcceptorEventHandler<T extends NetworkContext<T>> extends AbstractC
                 NetworkStatsListener<T> nl = nc.networkStatsListener();
                 notifyHostPort(sc, nl);
                 TcpEventHandler<T> apply = handlerFactory.apply(nc);
-                eventLoop.addHandler(apply);
+                if (nc.serverThreadingStrategy() == ServerThreadingStrategy.VIRTUAL_THREAD) {
+                    connectionThreadHandlers.add(apply);
+                    VirtualThreads.start(hostPort + "-" + sc.socket().getRemoteSocketAddress(), () -> {
+                        try {
+                            apply.runOnCurrentThread();
+                        } finally {
+                            connectionThreadHandlers.remove(apply);
+                        }
+                    });
+                } else {
+                    eventLoop.addHandler(apply);
+                }
             }
         } catch (AsynchronousCloseException e) {
             closeSocket();
@@ -119,6 +134,13 @@ public class AcceptorEventHandler<T extends NetworkContext<T>> extends AbstractC
         return false;
     }
 
+    /**
+     * @return the number of connections being served by a thread of their own
+     */
+    int connectionThreads() {
+        return connectionThreadHandlers.size();
+    }
+
     private void closeSocket() {
         ssc.socket().close();
         ssc.close();
@@ -133,5 +155,6 @@ public class AcceptorEventHandler<T extends NetworkContext<T>> extends AbstractC
     @Override
     protected void performClose() {
         closeSocket();
+        Closeable.closeQuietly(connectionThreadHandlers);
     }
 }
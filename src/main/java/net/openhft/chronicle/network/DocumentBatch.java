@@ -0,0 +1,122 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.Wires;
+import net.openhft.chronicle.wire.YamlLogging;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static net.openhft.chronicle.wire.Wires.SPB_HEADER_SIZE;
+
+/**
+ * A reusable view of the complete documents in a {@link WireTcpHandler}'s input, see {@link DocumentBatchHandler}.
+ * <p>
+ * The {@link DocumentContext} returned by {@link #next()} is closed, and the document consumed, when {@link #next()}
+ * is called again or the batch ends. Only whole documents already in the buffer are returned.
+ */
+public final class DocumentBatch implements Iterable<DocumentContext>, Iterator<DocumentContext> {
+
+    private Wire inWire;
+    @Nullable
+    private DocumentContext current;
+    // where the document after current starts, and the read limit before current was opened
+    private long nextPosition;
+    private long limit;
+    private int count;
+
+    DocumentBatch() {
+    }
+
+    void wire(@NotNull final Wire inWire) {
+        this.inWire = inWire;
+        this.count = 0;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<DocumentContext> iterator() {
+        return this;
+    }
+
+    /**
+     * @return true if there is another complete document, this can be called any number of times and doesn't close
+     * the document returned by the last call to {@link #next()}
+     */
+    @Override
+    public boolean hasNext() {
+        final Bytes<?> bytes = inWire.bytes();
+        if (current == null)
+            return isComplete(bytes, bytes.readPosition(), bytes.readLimit());
+        // the open document limits the bytes to itself, so look past it
+        final long docLimit = bytes.readLimit();
+        bytes.readLimit(limit);
+        try {
+            return isComplete(bytes, nextPosition, limit);
+        } finally {
+            bytes.readLimit(docLimit);
+        }
+    }
+
+    @NotNull
+    @Override
+    public DocumentContext next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        closeCurrent();
+        final Bytes<?> bytes = inWire.bytes();
+        limit = bytes.readLimit();
+        nextPosition = bytes.readPosition() + SPB_HEADER_SIZE + Wires.lengthOf(bytes.readVolatileInt(bytes.readPosition()));
+        final DocumentContext dc = inWire.readingDocument();
+        if (!dc.isPresent()) {
+            dc.close();
+            throw new NoSuchElementException();
+        }
+        current = dc;
+        count++;
+        if (YamlLogging.showServerReads())
+            WireTcpHandler.logYaml(dc);
+        return dc;
+    }
+
+    private static boolean isComplete(@NotNull final Bytes<?> bytes, final long position, final long limit) {
+        if (limit - position < SPB_HEADER_SIZE)
+            return false;
+        final int header = bytes.readVolatileInt(position);
+        return Wires.isReady(header) && limit - position >= SPB_HEADER_SIZE + Wires.lengthOf(header);
+    }
+
+    /**
+     * @return the number of documents returned by {@link #next()} in this batch so far
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * @return the document returned by the last call to {@link #next()} if it is still open
+     */
+    @Nullable
+    DocumentContext current() {
+        return current;
+    }
+
+    /**
+     * consumes the document returned by the last call to {@link #next()}, if any
+     */
+    void end() {
+        closeCurrent();
+    }
+
+    private void closeCurrent() {
+        if (current != null) {
+            final DocumentContext dc = current;
+            current = null;
+            dc.close();
+        }
+    }
+}
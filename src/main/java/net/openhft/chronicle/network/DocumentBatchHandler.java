@@ -0,0 +1,26 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.wire.WireOut;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Implemented by a {@link WireTcpHandler} which would rather see every complete document read in a poll at once,
+ * than have {@link WireTcpHandler#onRead} and {@link WireTcpHandler#onWrite} called for each one.
+ * <p>
+ * This allows work such as a lookup in a downstream system to be done once for many requests.
+ */
+@FunctionalInterface
+public interface DocumentBatchHandler {
+
+    /**
+     * Called with the documents available in this poll, after which {@link WireTcpHandler#onWrite} is called once,
+     * provided at least one document was read, i.e. {@link DocumentBatch#count()} &gt; 0.
+     * <p>
+     * Any document not iterated over is passed in another call, so the handler may stop early, however if none are
+     * read the rest are left until the next poll.
+     *
+     * @param batch the documents, only valid for the duration of this call
+     * @param out   the wire to write responses to
+     */
+    void onReadBatch(@NotNull DocumentBatch batch, @NotNull WireOut out);
+}
@@ -0,0 +1,76 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.threads.Threads;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A pool of single threaded workers which a {@link WireTcpHandler} can hand documents to, see
+ * {@link DocumentWorkerPoolHandler}.
+ * <p>
+ * Work for the same partition key is always run by the same worker, in the order it was submitted. The pool can be
+ * shared by many connections.
+ */
+public class DocumentWorkerPool extends AbstractCloseable {
+
+    private final ExecutorService[] workers;
+    private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    public DocumentWorkerPool(@NotNull final String name, final int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads=" + threads);
+        workers = new ExecutorService[threads];
+        for (int i = 0; i < threads; i++) {
+            final NamedThreadFactory factory = new NamedThreadFactory(name + "-" + i, true);
+            workers[i] = Executors.newSingleThreadExecutor(r -> {
+                final Thread thread = factory.newThread(r);
+                this.threads.add(thread);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * @return the number of worker threads
+     */
+    public int threads() {
+        return workers.length;
+    }
+
+    /**
+     * runs the task on the worker for this partition key
+     *
+     * @throws java.util.concurrent.RejectedExecutionException if the pool has been closed
+     */
+    public void execute(final long partitionKey, @NotNull final Runnable task) {
+        workers[worker(partitionKey)].execute(task);
+    }
+
+    /**
+     * @return true if called by one of this pool's workers
+     */
+    public boolean isWorkerThread() {
+        return threads.contains(Thread.currentThread());
+    }
+
+    int worker(final long partitionKey) {
+        // spread keys which only differ in the high bits
+        long h = partitionKey * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) ((h & Long.MAX_VALUE) % workers.length);
+    }
+
+    @Override
+    protected void performClose() {
+        for (ExecutorService worker : workers)
+            worker.shutdown();
+        for (ExecutorService worker : workers)
+            Threads.shutdown(worker);
+    }
+}
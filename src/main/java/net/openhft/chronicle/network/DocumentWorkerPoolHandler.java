@@ -0,0 +1,25 @@
+package net.openhft.chronicle.network;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Implemented by a {@link WireTcpHandler} which would rather have {@link WireTcpHandler#onRead} called on the workers
+ * of a {@link DocumentWorkerPool} than on the event loop, leaving the event loop to do the I/O.
+ * <p>
+ * Each document is copied and passed to the worker for its {@link WireTcpHandler#partitionKey}. The responses are
+ * written in the order they complete, so documents with the same key keep their order.
+ * <p>
+ * onRead is called concurrently for documents in different partitions, so it must be thread safe. State carried from
+ * one document to the next, such as the tid or cid of a meta data document, must not be kept in plain fields of the
+ * handler, however the documents of a partition are always processed in order on the same worker thread. Responses
+ * must be written to the {@code out} passed to onRead, not {@link WireTcpHandler#outWire}.
+ */
+@FunctionalInterface
+public interface DocumentWorkerPoolHandler {
+
+    /**
+     * @return the pool to process documents on, or null to process them on the event loop
+     */
+    @Nullable
+    DocumentWorkerPool workerPool();
+}
@@ -0,0 +1,116 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static java.util.Objects.requireNonNull;
+import static net.openhft.chronicle.wire.Wires.lengthOf;
+
+/**
+ * reads as much as the socket will give in one call, then indexes every complete size prefixed frame in the buffer,
+ * so a handler can process the whole batch without parsing the headers again.
+ * <p>
+ * The index is rebuilt on each read and refers to positions in the buffer passed to {@link #read}, so it is only
+ * valid until the {@link TcpEventHandler} next compacts or clears that buffer, i.e. for the handler calls which
+ * follow the read. To use it, pass the same instance to {@link TcpEventHandler#reader} and to the handler.
+ */
+public final class FramingSocketReader implements TcpEventHandler.SocketReader {
+
+    private static final int SIZE_OF_SIZE = 4;
+
+    private long[] offsets = new long[64];
+    private int[] headers = new int[64];
+    private int count = 0;
+    private long incomplete = -1;
+
+    /**
+     * reads what is available then indexes the complete frames
+     */
+    @Override
+    public int read(@NotNull final ChronicleSocketChannel socketChannel, @NotNull final Bytes<ByteBuffer> bytes) throws IOException {
+        final ByteBuffer bb = requireNonNull(bytes.underlyingObject());
+        final int read = socketChannel.read(bb);
+        index(bytes, bytes.readPosition(), bb.position());
+        return read;
+    }
+
+    /**
+     * indexes the complete frames between {@code start} and {@code end}
+     */
+    void index(@NotNull final Bytes<?> bytes, final long start, final long end) {
+        count = 0;
+        incomplete = -1;
+        long pos = start;
+        while (pos + SIZE_OF_SIZE <= end) {
+            final int header = bytes.readInt(pos);
+            final long next = pos + SIZE_OF_SIZE + lengthOf(header);
+            if (next > end)
+                break;
+            add(pos, header);
+            pos = next;
+        }
+        if (pos < end)
+            incomplete = pos;
+    }
+
+    private void add(final long offset, final int header) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            headers = Arrays.copyOf(headers, count * 2);
+        }
+        offsets[count] = offset;
+        headers[count] = header;
+        count++;
+    }
+
+    /**
+     * @return the number of complete frames found by the last read
+     */
+    public int frames() {
+        return count;
+    }
+
+    /**
+     * @param index of the frame
+     * @return the position of the frame's size prefix
+     */
+    public long offset(final int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * @param index of the frame
+     * @return the raw size prefix, including the meta data and not complete flags
+     */
+    public int header(final int index) {
+        checkIndex(index);
+        return headers[index];
+    }
+
+    /**
+     * @param index of the frame
+     * @return the length of the frame, excluding the size prefix
+     */
+    public int length(final int index) {
+        checkIndex(index);
+        return lengthOf(headers[index]);
+    }
+
+    /**
+     * @return the position of a trailing partial frame, or -1 if the buffer ended on a frame boundary
+     */
+    public long incompleteOffset() {
+        return incomplete;
+    }
+
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("index=" + index + ", frames=" + count);
+    }
+}
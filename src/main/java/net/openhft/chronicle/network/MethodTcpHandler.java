@@ -20,25 +20,47 @@ package net.openhft.chronicle.network;
 import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.bytes.MethodReader;
 import net.openhft.chronicle.core.Jvm;
-import net.openhft.chronicle.wire.DocumentContext;
-import net.openhft.chronicle.wire.Wire;
-import net.openhft.chronicle.wire.WireOut;
-import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.network.connection.CoreFields;
+import net.openhft.chronicle.network.connection.WireOutPublisher;
+import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
+import static net.openhft.chronicle.network.connection.CoreFields.exception;
+import static net.openhft.chronicle.network.connection.CoreFields.reply;
+
 public class MethodTcpHandler<I, O, N extends NetworkContext<N>> extends WireTcpHandler<N> {
 
     private final Supplier<I> implSupplier;
     private final Class<O> outClass;
     private final Consumer<O> outSetter;
+    private final Queue<AsyncReply> replies = new ConcurrentLinkedQueue<>();
     private MethodReader reader;
     private O output;
+    private long requestTid;
 
     /**
      * This TcpHandler turns messages into method calls.
+     * <p>
+     * Methods of the implementation which return a {@link CompletionStage} are asynchronous, the event loop doesn't
+     * wait for them and each reply is written when it completes as a meta data document with the {@code tid} of the
+     * request, followed by a {@code reply} or {@code exception}. The tid is taken from a meta data document sent
+     * before the request. A request without one is replied to without a tid, as a synchronous method's reply is. Any
+     * number of these can be in flight and they may complete in any order.
+     * <p>
+     * A reply is put on the {@link #publisher()}, by default the network context's, so the thread writing for the
+     * connection is woken rather than waiting for more input. Without a publisher it is written on the next poll.
      *
      * @param implSupplier supplier for the object implementing the inbound messages
      * @param outClass     proxy to call for outbound messages
@@ -61,12 +83,90 @@ public class MethodTcpHandler<I, O, N extends NetworkContext<N>> extends WireTcp
     @Override
     protected Wire initialiseInWire(@NotNull WireType wireType, Bytes<?> in) {
         Wire wire = super.initialiseInWire(wireType, in);
-        reader = wire.methodReader(implSupplier.get());
+        reader = wire.methodReader(asyncReplies(implSupplier.get()));
         return wire;
     }
 
+    /**
+     * wraps the implementation if any of its methods are asynchronous
+     */
+    @NotNull
+    private Object asyncReplies(@NotNull final Object impl) {
+        final Set<Class<?>> interfaces = new LinkedHashSet<>();
+        boolean async = false;
+        for (Class<?> c = impl.getClass(); c != null; c = c.getSuperclass())
+            for (Class<?> i : c.getInterfaces())
+                if (interfaces.add(i))
+                    for (Method m : i.getMethods())
+                        async |= CompletionStage.class.isAssignableFrom(m.getReturnType());
+        if (!async)
+            return impl;
+
+        return Proxy.newProxyInstance(impl.getClass().getClassLoader(), interfaces.toArray(new Class[0]), (proxy, method, args) -> {
+            final Object result;
+            try {
+                result = method.invoke(impl, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (!(result instanceof CompletionStage))
+                return result;
+
+            final long tid = requestTid;
+            ((CompletionStage<?>) result).whenComplete((r, t) -> onReply(new AsyncReply(tid, r, t)));
+            // the MethodReader must not treat the future as the target of a chained call
+            return null;
+        });
+    }
+
+    /**
+     * called on the thread which completed the future
+     */
+    private void onReply(@NotNull final AsyncReply reply) {
+        final WireOutPublisher publisher = publisher();
+        if (publisher == null)
+            replies.add(reply);
+        else
+            publisher.put(null, reply);
+    }
+
     @Override
     protected void onRead(@NotNull DocumentContext in, @NotNull WireOut out) {
+        if (in.isMetaData()) {
+            requestTid = readTid(in.wire());
+            // the meta data only carried the tid of the next request
+            if (requestTid == 0)
+                readAll(in);
+        } else {
+            try {
+                readAll(in);
+            } finally {
+                requestTid = 0;
+            }
+        }
+    }
+
+    /**
+     * looks for a tid without consuming the meta data
+     */
+    private static long readTid(@NotNull final WireIn wire) {
+        final Bytes<?> bytes = wire.bytes();
+        final long pos = bytes.readPosition();
+        try {
+            final StringBuilder eventName = Wires.acquireStringBuilder();
+            while (bytes.readRemaining() > 0) {
+                final ValueIn valueIn = wire.readEventName(eventName);
+                if (CoreFields.tid.contentEquals(eventName))
+                    return valueIn.int64();
+                valueIn.skipValue();
+            }
+            return 0;
+        } finally {
+            bytes.readPosition(pos);
+        }
+    }
+
+    private void readAll(@NotNull DocumentContext in) {
         for (; ; ) {
             long pos = in.wire().bytes().readPosition();
             if (!reader.readOne())
@@ -78,8 +178,45 @@ public class MethodTcpHandler<I, O, N extends NetworkContext<N>> extends WireTcp
         }
     }
 
+    @Override
+    protected void onWrite(@NotNull WireOut out) {
+        AsyncReply asyncReply;
+        while ((asyncReply = replies.poll()) != null)
+            asyncReply.writeTo(out);
+        super.onWrite(out);
+    }
+
     @Override
     protected void onInitialize() {
+        final WireOutPublisher publisher = nc().wireOutPublisher();
+        if (publisher() == null && publisher != null)
+            publisher(publisher);
+    }
+
+    static final class AsyncReply implements WriteMarshallable {
+        final long tid;
+        final Object value;
+        final Throwable thrown;
+
+        AsyncReply(long tid, Object value, Throwable thrown) {
+            this.tid = tid;
+            this.value = value;
+            this.thrown = thrown instanceof CompletionException && thrown.getCause() != null ? thrown.getCause() : thrown;
+        }
+
+        @Override
+        public void writeMarshallable(@NotNull WireOut out) {
+            writeTo(out);
+        }
 
+        void writeTo(@NotNull WireOut out) {
+            // 0 if the request didn't have a tid
+            if (tid != 0)
+                out.writeDocument(true, w -> w.write(CoreFields.tid).int64(tid));
+            if (thrown == null)
+                out.writeDocument(false, w -> w.write(reply).object(value));
+            else
+                out.writeDocument(false, w -> w.write(exception).throwable(thrown));
+        }
     }
 }
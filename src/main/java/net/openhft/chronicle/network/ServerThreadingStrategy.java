@@ -22,7 +22,9 @@ public enum ServerThreadingStrategy {
     SINGLE_THREADED("uses a single threaded prioritised event loop," +
             " where the reads take priority over the asynchronous writes"),
     CONCURRENT("each client connection is partitioned to a limit number of threads, " +
-            "This is ideal when you have a small number of client connections on a server with a large number of free cores");
+            "This is ideal when you have a small number of client connections on a server with a large number of free cores"),
+    VIRTUAL_THREAD("each client connection is served by a thread of its own, a virtual thread on Java 21+, " +
+            "This is ideal when the handler blocks, e.g. waiting for another service");
 
     private final String description;
 
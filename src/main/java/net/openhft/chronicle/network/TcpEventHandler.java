@@ -29,11 +29,16 @@ import net.openhft.chronicle.core.threads.EventHandler;
 import net.openhft.chronicle.core.threads.EventLoop;
 import net.openhft.chronicle.core.threads.HandlerPriority;
 import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
+import net.openhft.chronicle.network.api.StreamingTcpHandler;
 import net.openhft.chronicle.network.api.TcpHandler;
+import net.openhft.chronicle.network.connection.WireOutPublisher;
 import net.openhft.chronicle.network.tcp.ChronicleSocket;
 import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
 import net.openhft.chronicle.network.tcp.ChronicleSocketChannelFactory;
+import net.openhft.chronicle.threads.LongPauser;
 import net.openhft.chronicle.threads.MediumEventLoop;
+import net.openhft.chronicle.threads.Pauser;
+import net.openhft.chronicle.wire.Wires;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
@@ -45,12 +50,16 @@ import java.nio.channels.ClosedByInterruptException;
 import java.nio.channels.ClosedChannelException;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 import static java.lang.Math.max;
 import static net.openhft.chronicle.core.io.Closeable.closeQuietly;
+import static net.openhft.chronicle.network.api.StreamingTcpHandler.Chunk.*;
 import static net.openhft.chronicle.network.connection.TcpChannelHub.TCP_BUFFER;
 
 public class TcpEventHandler<T extends NetworkContext<T>>
@@ -61,9 +70,13 @@ public class TcpEventHandler<T extends NetworkContext<T>>
     private static final int MONITOR_POLL_EVERY_SEC = Integer.getInteger("tcp.event.monitor.secs", 10);
     private static final long NBR_WARNING_NANOS = Long.getLong("tcp.nbr.warning.nanos", 20_000_000);
     private static final long NBW_WARNING_NANOS = Long.getLong("tcp.nbw.warning.nanos", 20_000_000);
+    // the longest a connection's own threads park for while the connection is idle, see runOnCurrentThread()
+    private static final long CONNECTION_MAX_PAUSE_US = Long.getLong("tcp.connection.maxPauseUs", 10_000);
+    private static final long CONNECTION_MIN_PAUSE_NS = 10_000;
     private static final Logger LOG = LoggerFactory.getLogger(TcpEventHandler.class);
     private static final AtomicBoolean FIRST_HANDLER = new AtomicBoolean();
     private static final int DEFAULT_MAX_MESSAGE_SIZE = 1 << 30;
+    private static final int SIZE_OF_SIZE = 4;
     public static boolean DISABLE_TCP_NODELAY = Jvm.getBoolean("disable.tcp_nodelay");
 
     static {
@@ -94,6 +107,13 @@ public class TcpEventHandler<T extends NetworkContext<T>>
     // allow for 20 seconds of slowness at startup
     private long lastTickReadTime = System.currentTimeMillis() + 20_000;
     private Thread actionThread;
+    // the bytes still to be delivered of a document being streamed to a StreamingTcpHandler
+    private long streamRemaining;
+    private StreamingTcpHandler.Chunk nextChunk = BEGIN;
+    // held to call the handler when the connection has threads of its own, see runOnCurrentThread()
+    private final ReentrantLock connectionLock = new ReentrantLock();
+    // the position of the inBBB's buffer a blocking read is reading to, or -1. The buffer is left alone until it returns
+    private int readingFrom = -1;
 
     public TcpEventHandler(@NotNull final T nc) {
         this(nc, false);
@@ -130,6 +150,7 @@ public class TcpEventHandler<T extends NetworkContext<T>>
 
         //We have to provide back pressure to restrict the buffer growing beyond,2GB because it reverts to
         // being Native bytes, we should also provide back pressure if we are not able to keep up
+        // NOTE a StreamingTcpHandler never needs the buffer to grow beyond its initial size
         inBBB = Bytes.elasticByteBuffer(TCP_BUFFER + OS.pageSize(), max(TCP_BUFFER + OS.pageSize(), DEFAULT_MAX_MESSAGE_SIZE));
         outBBB = Bytes.elasticByteBuffer(TCP_BUFFER, max(TCP_BUFFER, DEFAULT_MAX_MESSAGE_SIZE));
 
@@ -191,6 +212,164 @@ public class TcpEventHandler<T extends NetworkContext<T>>
         }
     }
 
+    /**
+     * Serves the connection on the calling thread until it is closed, for {@link
+     * ServerThreadingStrategy#VIRTUAL_THREAD}. This thread blocks reading the socket, and a second thread writes what
+     * is published for the connection, so a handler which blocks only holds up its own connection. Both threads call
+     * the handler holding the connection's lock.
+     * <p>
+     * The writing thread is woken by a {@link WireOutPublisher} which supports {@link WireOutPublisher#onPublish}, and
+     * otherwise calls the handler after a pause of up to {@code tcp.connection.maxPauseUs} while the connection is idle,
+     * as a handler may write without being called for input or publishing, e.g. to send a heartbeat.
+     * <p>
+     * A {@link SocketReader} other than the default may use the buffer as it reads, so with one the socket is polled
+     * without blocking by this thread alone.
+     */
+    void runOnCurrentThread() {
+        // it was created on the acceptor's thread
+        resetUsedByThread();
+        Thread writer = null;
+        try {
+            if (reader instanceof DefaultSocketReader) {
+                sc.configureBlocking(true);
+                writer = VirtualThreads.start(Thread.currentThread().getName() + "-writer", this::writeOnCurrentThread);
+                readOnCurrentThread();
+            } else {
+                pollOnCurrentThread();
+            }
+        } catch (InvalidEventHandlerException e) {
+            // the connection has ended
+        } catch (Throwable t) {
+            if (!isClosing())
+                Jvm.warn().on(getClass(), t);
+        } finally {
+            closeQuietly(this);
+            if (writer != null)
+                joinWriter(writer);
+            loopFinished();
+        }
+    }
+
+    private void pollOnCurrentThread() throws InvalidEventHandlerException {
+        final Pauser pauser = new LongPauser(0, 10, 50, CONNECTION_MAX_PAUSE_US, TimeUnit.MICROSECONDS);
+        for (; ; ) {
+            if (action()) {
+                pauser.reset();
+            } else {
+                // there is no event loop to run it
+                statusMonitorEventHandler.action();
+                pauser.pause();
+            }
+        }
+    }
+
+    /**
+     * blocks reading the socket, then passes what was read to the handler
+     */
+    private void readOnCurrentThread() throws InvalidEventHandlerException {
+        for (; ; ) {
+            final int start;
+            final boolean full;
+            connectionLock.lock();
+            try {
+                if (isClosing() || !sc.isOpen())
+                    throw new InvalidEventHandlerException("socket is closed");
+                final ByteBuffer inBB = inBBB.underlyingObject();
+                if (!inBB.hasRemaining()) {
+                    onInBBFul();
+                    invokeHandler();
+                }
+                start = inBB.position();
+                full = !inBB.hasRemaining();
+                if (!full)
+                    readingFrom = start;
+            } catch (IOException e) {
+                throw onReadFailure(e);
+            } finally {
+                connectionLock.unlock();
+            }
+            if (full) {
+                // wait for the handler to consume some of the buffer
+                Jvm.pause(1);
+                continue;
+            }
+
+            int read = 0;
+            Exception failure = null;
+            try {
+                read = reader.read(sc, inBBB);
+            } catch (Exception e) {
+                failure = e;
+            }
+
+            connectionLock.lock();
+            try {
+                readingFrom = -1;
+                if (failure != null)
+                    throw failure;
+                statusMonitorEventHandler.incrementSocketPollCount();
+                onRead(read, start, false);
+            } catch (Exception e) {
+                throw onReadFailure(e);
+            } finally {
+                connectionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * calls the handler to write what has been published, and checks for a heartbeat timeout, until the connection is
+     * closed
+     */
+    private void writeOnCurrentThread() {
+        final Thread thread = Thread.currentThread();
+        final WireOutPublisher publisher = nc.wireOutPublisher();
+        if (publisher != null)
+            publisher.onPublish(() -> LockSupport.unpark(thread));
+        try {
+            long pauseNs = 0;
+            while (!isClosing()) {
+                final boolean busy;
+                connectionLock.lock();
+                try {
+                    if (isClosing())
+                        break;
+                    busy = writeAction();
+                    // the read blocks, so it doesn't check
+                    checkHeartbeatTimeout();
+                } finally {
+                    connectionLock.unlock();
+                }
+                if (busy) {
+                    pauseNs = 0;
+                } else {
+                    statusMonitorEventHandler.action();
+                    pauseNs = Math.min(Math.max(pauseNs * 2, CONNECTION_MIN_PAUSE_NS), CONNECTION_MAX_PAUSE_US * 1000);
+                    LockSupport.parkNanos(this, pauseNs);
+                }
+            }
+        } catch (InvalidEventHandlerException e) {
+            // the connection has ended
+        } catch (Throwable t) {
+            if (!isClosing())
+                Jvm.warn().on(getClass(), t);
+        } finally {
+            if (publisher != null)
+                publisher.onPublish(null);
+            // stops the read
+            closeQuietly(this);
+        }
+    }
+
+    private void joinWriter(@NotNull final Thread writer) {
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private boolean action0() throws InvalidEventHandlerException {
         if (!sc.isOpen()) {
             tcpHandler.onEndOfConnection(false);
@@ -211,29 +390,42 @@ public class TcpEventHandler<T extends NetworkContext<T>>
             try {
                 busy = readAction(busy);
 
-            } catch (ClosedChannelException e) {
-                close();
-                throw new InvalidEventHandlerException(e);
-            } catch (IOException e) {
-                if (!isClosed()) {
-                    close();
-                    handleIOE(e, tcpHandler.hasClientClosed(), nc.heartbeatListener());
-                }
-                throw new InvalidEventHandlerException();
-            } catch (InvalidEventHandlerException e) {
-                close();
-                throw e;
             } catch (Exception e) {
-                if (!isClosed()) {
-                    close();
-                    Jvm.warn().on(getClass(), "", e);
-                }
-                throw new InvalidEventHandlerException(e);
+                throw onReadFailure(e);
             }
 
         return busy;
     }
 
+    /**
+     * closes the connection after reading failed
+     *
+     * @return the exception to end the connection with
+     */
+    @NotNull
+    private InvalidEventHandlerException onReadFailure(@NotNull final Exception e) {
+        if (e instanceof ClosedChannelException) {
+            close();
+            return new InvalidEventHandlerException(e);
+        }
+        if (e instanceof IOException) {
+            if (!isClosed()) {
+                close();
+                handleIOE((IOException) e, tcpHandler.hasClientClosed(), nc.heartbeatListener());
+            }
+            return new InvalidEventHandlerException();
+        }
+        if (e instanceof InvalidEventHandlerException) {
+            close();
+            return (InvalidEventHandlerException) e;
+        }
+        if (!isClosed()) {
+            close();
+            Jvm.warn().on(getClass(), "", e);
+        }
+        return new InvalidEventHandlerException(e);
+    }
+
     private boolean readAction(boolean busy) throws IOException, InvalidEventHandlerException {
         final ByteBuffer inBB = inBBB.underlyingObject();
         final int start = inBB.position();
@@ -246,6 +438,11 @@ public class TcpEventHandler<T extends NetworkContext<T>>
         if (nbWarningEnabled && elapsedNs > NBR_WARNING_NANOS)
             statusMonitorEventHandler.add(new ThreadLogTypeElapsedRecord(LogType.READ, elapsedNs));
 
+        return onRead(read, start, busy);
+    }
+
+    private boolean onRead(final int read, final int start, boolean busy) throws IOException, InvalidEventHandlerException {
+        final ByteBuffer inBB = inBBB.underlyingObject();
         if (read == Integer.MAX_VALUE)
             onInBBFul();
         if (read > 0) {
@@ -261,20 +458,7 @@ public class TcpEventHandler<T extends NetworkContext<T>>
             }
 
             // check for timeout only here - in other branches we either just read something or are about to close socket anyway
-            if (nc.heartbeatTimeoutMs() > 0) {
-                final long tickTime = System.currentTimeMillis();
-                if (tickTime > lastTickReadTime + nc.heartbeatTimeoutMs()) {
-                    final HeartbeatListener heartbeatListener = nc.heartbeatListener();
-                    if (heartbeatListener != null && heartbeatListener.onMissedHeartbeat()) {
-                        // implementer tries to recover - do not disconnect for some time
-                        lastTickReadTime += heartbeatListener.lingerTimeBeforeDisconnect();
-                    } else {
-                        tcpHandler.onEndOfConnection(true);
-                        close();
-                        throw new InvalidEventHandlerException("heartbeat timeout");
-                    }
-                }
-            }
+            checkHeartbeatTimeout();
         } else {
             // read == -1, socketChannel has reached end-of-stream
             close();
@@ -286,6 +470,23 @@ public class TcpEventHandler<T extends NetworkContext<T>>
         return busy;
     }
 
+    private void checkHeartbeatTimeout() throws InvalidEventHandlerException {
+        if (nc.heartbeatTimeoutMs() > 0) {
+            final long tickTime = System.currentTimeMillis();
+            if (tickTime > lastTickReadTime + nc.heartbeatTimeoutMs()) {
+                final HeartbeatListener heartbeatListener = nc.heartbeatListener();
+                if (heartbeatListener != null && heartbeatListener.onMissedHeartbeat()) {
+                    // implementer tries to recover - do not disconnect for some time
+                    lastTickReadTime += heartbeatListener.lingerTimeBeforeDisconnect();
+                } else {
+                    tcpHandler.onEndOfConnection(true);
+                    close();
+                    throw new InvalidEventHandlerException("heartbeat timeout");
+                }
+            }
+        }
+    }
+
     @Override
     public String toString() {
         return "TcpEventHandler{" +
@@ -327,6 +528,9 @@ public class TcpEventHandler<T extends NetworkContext<T>>
                 return singleThreadedPriority();
             case CONCURRENT:
                 return HandlerPriority.CONCURRENT;
+            case VIRTUAL_THREAD:
+                // normally run by runOnCurrentThread() rather than an event loop
+                return HandlerPriority.BLOCKING;
             default:
                 throw new UnsupportedOperationException("todo");
         }
@@ -359,6 +563,8 @@ public class TcpEventHandler<T extends NetworkContext<T>>
     @Override
 
     public void loopFinished() {
+        if (tcpHandler != null)
+            tcpHandler.loopFinished();
         // Release unless already released
         inBBB.releaseLast();
         outBBB.releaseLast();
@@ -372,14 +578,15 @@ public class TcpEventHandler<T extends NetworkContext<T>>
     boolean invokeHandler() throws IOException {
         Jvm.safepoint();
         boolean busy = false;
-        final int position = inBBB.underlyingObject().position();
+        // only what was read before a blocking read started, if one is reading
+        final int position = readingFrom < 0 ? inBBB.underlyingObject().position() : readingFrom;
         inBBB.readLimit(position);
         outBBB.writePosition(outBBB.underlyingObject().limit());
 
         long lastInBBBReadPosition;
         do {
             lastInBBBReadPosition = inBBB.readPosition();
-            tcpHandler.process(inBBB, outBBB, nc);
+            process();
 
             statusMonitorEventHandler.addBytesRead(inBBB.readPosition() - lastInBBBReadPosition);
 
@@ -406,7 +613,9 @@ public class TcpEventHandler<T extends NetworkContext<T>>
 
         Jvm.safepoint();
 
-        if (inBBB.readRemaining() == 0) {
+        if (readingFrom >= 0) {
+            // the read compacts it once it returns
+        } else if (inBBB.readRemaining() == 0) {
             clearBuffer();
 
         } else if (inBBB.readPosition() > TCP_BUFFER / 4) {
@@ -417,6 +626,86 @@ public class TcpEventHandler<T extends NetworkContext<T>>
         return busy;
     }
 
+    private void process() {
+        final TcpHandler<T> handler = this.tcpHandler;
+        if (handler instanceof StreamingTcpHandler)
+            processStreaming((StreamingTcpHandler<T>) handler);
+        else
+            handler.process(inBBB, outBBB, nc);
+    }
+
+    /**
+     * passes documents to the handler as usual, except those larger than its streaming threshold, these are delivered
+     * in chunks as they arrive so the inBBB never has to hold the whole document.
+     */
+    private void processStreaming(@NotNull final StreamingTcpHandler<T> handler) {
+        if (streamRemaining > 0) {
+            deliverChunk(handler);
+            return;
+        }
+
+        final long readPosition = inBBB.readPosition();
+        final long readLimit = inBBB.readLimit();
+        final int threshold = handler.streamingThreshold();
+
+        // find the first oversized document, if any
+        long pos = readPosition;
+        int length = 0;
+        while (pos + SIZE_OF_SIZE <= readLimit) {
+            length = Wires.lengthOf(inBBB.readInt(pos));
+            if (length > threshold)
+                break;
+            pos += SIZE_OF_SIZE + length;
+        }
+
+        if (pos != readPosition || pos + SIZE_OF_SIZE > readLimit) {
+            // only let the handler see the documents before the oversized one
+            inBBB.readLimit(Math.min(pos, readLimit));
+            try {
+                handler.process(inBBB, outBBB, nc);
+            } finally {
+                inBBB.readLimit(readLimit);
+            }
+            return;
+        }
+
+        streamRemaining = SIZE_OF_SIZE + length;
+        nextChunk = BEGIN;
+        deliverChunk(handler);
+    }
+
+    private void deliverChunk(@NotNull final StreamingTcpHandler<T> handler) {
+        final long readPosition = inBBB.readPosition();
+        final long length = Math.min(streamRemaining, inBBB.readRemaining());
+        if (length <= 0)
+            return;
+
+        final boolean last = length == streamRemaining;
+        final StreamingTcpHandler.Chunk chunk = last && nextChunk != BEGIN ? END : nextChunk;
+        offerChunk(handler, readPosition, length, chunk);
+        streamRemaining -= length;
+        nextChunk = CONTINUE;
+
+        // the whole document arrived in one go, so it still needs an END
+        if (last && chunk == BEGIN)
+            offerChunk(handler, readPosition + length, 0, END);
+    }
+
+    private void offerChunk(@NotNull final StreamingTcpHandler<T> handler,
+                            final long position,
+                            final long length,
+                            @NotNull final StreamingTcpHandler.Chunk chunk) {
+        final long readLimit = inBBB.readLimit();
+        inBBB.readLimit(position + length);
+        try {
+            handler.onChunk(inBBB, outBBB, nc, chunk);
+        } finally {
+            // each chunk is only offered once, whatever the handler did not read is skipped
+            inBBB.readLimit(readLimit);
+            inBBB.readPosition(position + length);
+        }
+    }
+
     private void clearBuffer() {
         inBBB.clear();
         @Nullable final ByteBuffer inBB = inBBB.underlyingObject();
@@ -476,7 +765,8 @@ public class TcpEventHandler<T extends NetworkContext<T>>
             return false;
         final int start = outBB.position();
         final long beginNs = System.nanoTime();
-        assert !sc.isBlocking();
+        // only a connection with threads of its own blocks
+        assert !sc.isBlocking() || connectionLock.isHeldByCurrentThread();
         int wrote = sc.write(outBB);
         long elapsedNs = System.nanoTime() - beginNs;
         if (nbWarningEnabled && elapsedNs > NBW_WARNING_NANOS)
@@ -0,0 +1,56 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Method;
+
+/**
+ * Starts virtual threads on Java 21+, or daemon platform threads on earlier versions. The builder is looked up by
+ * reflection as this library is compiled for Java 8.
+ */
+final class VirtualThreads {
+    @Nullable
+    private static final Object BUILDER;
+    @Nullable
+    private static final Method UNSTARTED;
+
+    static {
+        Object builder = null;
+        Method unstarted = null;
+        try {
+            builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+        } catch (ReflectiveOperationException e) {
+            Jvm.debug().on(VirtualThreads.class, "virtual threads are not available, using platform threads");
+        }
+        BUILDER = builder;
+        UNSTARTED = unstarted;
+    }
+
+    private VirtualThreads() {
+    }
+
+    static boolean isAvailable() {
+        return UNSTARTED != null;
+    }
+
+    @NotNull
+    static Thread start(@NotNull final String name, @NotNull final Runnable runnable) {
+        Thread thread = null;
+        if (UNSTARTED != null)
+            try {
+                thread = (Thread) UNSTARTED.invoke(BUILDER, runnable);
+            } catch (ReflectiveOperationException e) {
+                Jvm.warn().on(VirtualThreads.class, "unable to create a virtual thread, using a platform thread", e);
+            }
+        if (thread == null) {
+            thread = new Thread(runnable);
+            thread.setDaemon(true);
+        }
+        thread.setName(name);
+        thread.start();
+        return thread;
+    }
+}
@@ -28,6 +28,14 @@ import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.openhft.chronicle.network.connection.CoreFields.cid;
 import static net.openhft.chronicle.network.connection.CoreFields.reply;
 import static net.openhft.chronicle.wire.WireType.BINARY;
 import static net.openhft.chronicle.wire.WireType.DELTA_BINARY;
@@ -39,6 +47,9 @@ public abstract class WireTcpHandler<T extends NetworkContext<T>>
 
     private static final int SIZE_OF_SIZE = 4;
     private static final Logger LOG = LoggerFactory.getLogger(WireTcpHandler.class);
+    private static final int MAX_IN_FLIGHT = Integer.getInteger("WireTcpHandler.maxInFlight", 1024);
+    // how long close waits for documents being processed by a DocumentWorkerPool
+    private static final long CLOSE_TIMEOUT_MS = Long.getLong("WireTcpHandler.closeTimeoutMs", 5_000);
     // this is the point at which it is worth doing more work to get more data.
 
     protected Wire outWire;
@@ -55,8 +66,18 @@ public abstract class WireTcpHandler<T extends NetworkContext<T>>
     private T nc;
     private boolean isAcceptor;
     private long lastReadRemaining;
-
-    private static void logYaml(@NotNull final DocumentContext dc) {
+    @Nullable
+    private DocumentBatch batch;
+    // used when documents are processed by a DocumentWorkerPool
+    private final Queue<OffloadedDocument> completed = new ConcurrentLinkedQueue<>();
+    private final Deque<OffloadedDocument> freeDocuments = new ArrayDeque<>();
+    private WireType offloadWireType;
+    private int inFlight;
+    // documents handed to a worker which it hasn't finished with
+    private final AtomicInteger offloaded = new AtomicInteger();
+    private long lastCid;
+
+    static void logYaml(@NotNull final DocumentContext dc) {
         if (YamlLogging.showServerWrites() || YamlLogging.showServerReads())
             try {
                 LOG.info("\nDocumentContext:\n" +
@@ -152,7 +173,13 @@ public abstract class WireTcpHandler<T extends NetworkContext<T>>
         if (publisher != null)
             publisher.applyAction(outWire);
 
-        if (in.readRemaining() >= SIZE_OF_SIZE)
+        final DocumentWorkerPool workerPool = this instanceof DocumentWorkerPoolHandler
+                ? ((DocumentWorkerPoolHandler) this).workerPool()
+                : null;
+        if (workerPool != null) {
+            offloadWireType = wireType;
+            onReadOffloaded0(workerPool);
+        } else if (in.readRemaining() >= SIZE_OF_SIZE)
             onRead0();
         else
             onWrite(outWire);
@@ -189,6 +216,11 @@ public abstract class WireTcpHandler<T extends NetworkContext<T>>
 
         ensureCapacity();
 
+        if (this instanceof DocumentBatchHandler) {
+            onReadBatch0((DocumentBatchHandler) this);
+            return;
+        }
+
         try {
 
             while (!inWire.bytes().isEmpty()) {
@@ -212,6 +244,155 @@ public abstract class WireTcpHandler<T extends NetworkContext<T>>
         }
     }
 
+    /**
+     * passes all the complete documents to the handler then calls onWrite once, if any were read.
+     */
+    private void onReadBatch0(@NotNull final DocumentBatchHandler handler) {
+        if (batch == null)
+            batch = new DocumentBatch();
+        batch.wire(inWire);
+        try {
+            while (batch.hasNext()) {
+                final int count = batch.count();
+                try {
+                    handler.onReadBatch(batch, outWire);
+                } catch (Exception e) {
+                    final DocumentContext dc = batch.current();
+                    Jvm.warn().on(getClass(), "inWire=" + inWire.getClass() +
+                            (dc == null ? "" : ",yaml=" + Wires.fromSizePrefixedBlobs(dc)), e);
+                } finally {
+                    batch.end();
+                }
+                // leave the rest for the next poll if the handler didn't read any
+                if (batch.count() == count)
+                    break;
+            }
+            if (batch.count() > 0)
+                onWrite(outWire);
+        } finally {
+            assert inWire.endUse();
+        }
+    }
+
+    /**
+     * Called on the event loop to pick the worker for a document when there is a
+     * {@link DocumentWorkerPoolHandler#workerPool()}.
+     * <p>
+     * By default this is the last {@code cid} seen in a meta data document, so the meta data and data documents of
+     * a request are processed together, in order.
+     *
+     * @param isMetaData true if this is a meta data document
+     * @param in         the content of the document, any reads are undone after this call
+     * @return the key documents are partitioned by
+     */
+    protected long partitionKey(final boolean isMetaData, @NotNull final WireIn in) {
+        if (isMetaData) {
+            lastCid = 0;
+            final StringBuilder eventName = Wires.acquireStringBuilder();
+            while (in.bytes().readRemaining() > 0) {
+                final ValueIn valueIn = in.readEventName(eventName);
+                if (cid.contentEquals(eventName)) {
+                    lastCid = valueIn.int64();
+                    break;
+                }
+                valueIn.skipValue();
+            }
+        }
+        return lastCid;
+    }
+
+    /**
+     * hands all the complete documents to the workers, up to a limit, then writes any responses.
+     */
+    private void onReadOffloaded0(@NotNull final DocumentWorkerPool workerPool) {
+        assert inWire.startUse();
+        try {
+            final Bytes<?> bytes = inWire.bytes();
+            while (inFlight < MAX_IN_FLIGHT && bytes.readRemaining() >= SIZE_OF_SIZE) {
+                final long pos = bytes.readPosition();
+                final int header = bytes.readVolatileInt(pos);
+                final int size = SIZE_OF_SIZE + Wires.lengthOf(header);
+                if (!Wires.isReady(header) || bytes.readRemaining() < size) {
+                    ensureCapacity();
+                    break;
+                }
+
+                final OffloadedDocument doc = acquireDocument();
+                doc.in.write(bytes, pos, size);
+                bytes.readSkip(size);
+
+                doc.in.readPosition(SIZE_OF_SIZE);
+                final long key;
+                try {
+                    key = partitionKey(!Wires.isData(header), doc.inWire);
+                } finally {
+                    doc.in.readPosition(0);
+                }
+                inFlight++;
+                offloaded.incrementAndGet();
+                try {
+                    workerPool.execute(key, doc);
+                } catch (RuntimeException e) {
+                    offloaded.decrementAndGet();
+                    inFlight--;
+                    doc.release();
+                    throw e;
+                }
+            }
+        } finally {
+            assert inWire.endUse();
+        }
+
+        OffloadedDocument doc;
+        while ((doc = completed.poll()) != null) {
+            outWire.bytes().write(doc.out);
+            inFlight--;
+            if (isClosed()) {
+                doc.release();
+                continue;
+            }
+            doc.clear();
+            freeDocuments.add(doc);
+        }
+        onWrite(outWire);
+    }
+
+    @NotNull
+    private OffloadedDocument acquireDocument() {
+        final OffloadedDocument doc = freeDocuments.poll();
+        if (doc != null && doc.wireType == offloadWireType)
+            return doc;
+        if (doc != null)
+            doc.release();
+        return new OffloadedDocument(offloadWireType);
+    }
+
+    /**
+     * waits for the documents being processed by workers, so their buffers aren't released while in use. A worker
+     * closing the handler can't wait, so the documents release themselves as they complete instead.
+     */
+    private void awaitOffloaded() {
+        if (offloaded.get() == 0)
+            return;
+        final DocumentWorkerPool workerPool = ((DocumentWorkerPoolHandler) this).workerPool();
+        if (workerPool != null && workerPool.isWorkerThread())
+            return;
+        final long end = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+        while (offloaded.get() > 0) {
+            if (System.currentTimeMillis() > end) {
+                Jvm.warn().on(getClass(), offloaded.get() + " documents still being processed after " + CLOSE_TIMEOUT_MS + " ms");
+                return;
+            }
+            Jvm.pause(1);
+        }
+    }
+
+    private void releaseCompleted() {
+        OffloadedDocument doc;
+        while ((doc = completed.poll()) != null)
+            doc.release();
+    }
+
     private void ensureCapacity() {
         @NotNull final Bytes<?> bytes = inWire.bytes();
         if (bytes.readRemaining() >= 4) {
@@ -366,9 +547,59 @@ public abstract class WireTcpHandler<T extends NetworkContext<T>>
     @Override
     protected void performClose() {
         Closeable.closeQuietly(publisher,nc);
+        awaitOffloaded();
+        releaseCompleted();
+        OffloadedDocument doc;
+        while ((doc = freeDocuments.poll()) != null)
+            doc.release();
     }
 
     protected void publish(final WriteMarshallable w) {
         publisher.put("", w);
     }
+
+    /**
+     * a copy of a document, and its response, processed by a worker.
+     */
+    private final class OffloadedDocument implements Runnable {
+        final WireType wireType;
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+        final Wire inWire;
+        final Wire outWire;
+
+        OffloadedDocument(@NotNull final WireType wireType) {
+            this.wireType = wireType;
+            this.inWire = wireType.apply(in);
+            this.outWire = wireType.apply(out);
+        }
+
+        @Override
+        public void run() {
+            try (DocumentContext dc = inWire.readingDocument()) {
+                if (dc.isPresent()) {
+                    if (YamlLogging.showServerReads())
+                        logYaml(dc);
+                    onRead(dc, outWire);
+                }
+            } catch (Exception e) {
+                Jvm.warn().on(WireTcpHandler.this.getClass(), "inWire=" + inWire.getClass() + ",yaml=" + Wires.fromSizePrefixedBlobs(in), e);
+            }
+            completed.add(this);
+            offloaded.decrementAndGet();
+            // the event loop no longer drains the responses once closed
+            if (WireTcpHandler.this.isClosed())
+                releaseCompleted();
+        }
+
+        void clear() {
+            in.clear();
+            out.clear();
+        }
+
+        void release() {
+            in.releaseLast();
+            out.releaseLast();
+        }
+    }
 }
@@ -0,0 +1,70 @@
+/*
+ * Copyright 2016-2020 chronicle.software
+ *
+ * https://chronicle.software
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.openhft.chronicle.network.api;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.network.NetworkContext;
+import org.jetbrains.annotations.NotNull;
+
+import static net.openhft.chronicle.network.connection.TcpChannelHub.TCP_BUFFER;
+
+/**
+ * A {@link TcpHandler} which opts in to receiving oversized documents as a sequence of chunks, rather than having the
+ * {@link net.openhft.chronicle.network.TcpEventHandler} grow its input buffer until the whole document fits.
+ * <p>
+ * Documents no longer than {@link #streamingThreshold()} are passed to {@link #process(Bytes, Bytes, NetworkContext)}
+ * as usual. For a larger document the handler sees one {@link Chunk#BEGIN} chunk, which starts with the 4 byte
+ * size prefix, zero or more {@link Chunk#CONTINUE} chunks and finally one {@link Chunk#END} chunk, which may be empty.
+ * Each chunk is only offered once, any bytes not read by the handler are skipped.
+ *
+ * @param <N> the type of NetworkContext
+ */
+public interface StreamingTcpHandler<N extends NetworkContext<N>> extends TcpHandler<N> {
+
+    /**
+     * @return the document length, excluding the size prefix, above which a document is streamed
+     */
+    default int streamingThreshold() {
+        return TCP_BUFFER / 2;
+    }
+
+    /**
+     * Called with the next part of an oversized document.
+     *
+     * @param in    the bytes of this chunk, bounded by its read limit
+     * @param out   the response sent back to the client
+     * @param nc    the network context
+     * @param chunk where this chunk sits in the document
+     */
+    void onChunk(@NotNull Bytes in, @NotNull Bytes out, N nc, @NotNull Chunk chunk);
+
+    enum Chunk {
+        /**
+         * the first chunk, starting with the size prefix of the document
+         */
+        BEGIN,
+        /**
+         * a chunk from the middle of the document
+         */
+        CONTINUE,
+        /**
+         * the last chunk, this completes the document
+         */
+        END
+    }
+}
@@ -54,4 +54,11 @@ public interface TcpHandler<N extends NetworkContext<N>> extends ClientClosedPro
 
     default void onReadComplete() {
     }
+
+    /**
+     * called on the thread which calls {@link #process} once it will call it no more, so anything only that thread
+     * uses can be released, even if the handler was closed by another thread
+     */
+    default void loopFinished() {
+    }
 }
@@ -33,7 +33,9 @@ import org.slf4j.LoggerFactory;
 import java.io.Closeable;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Function;
@@ -283,6 +285,30 @@ public abstract class AbstractStatelessClient<E extends ParameterizeWireKey>
                 reply, consumerIn));
     }
 
+    /**
+     * like {@link #proxyReturnWireConsumerInOut(WireKey, WireKey, WriteValue, Function)} but doesn't block the
+     * calling thread waiting for the reply.
+     *
+     * @param executor to complete the future on, or null to complete it on the hub's read thread
+     */
+    protected <T> CompletableFuture<T> proxyReturnAsync(@NotNull final WireKey eventId,
+                                                       @NotNull final WireKey reply,
+                                                       @Nullable final WriteValue consumerOut,
+                                                       @NotNull final Function<ValueIn, T> consumerIn,
+                                                       @Nullable final Executor executor) {
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        return hub.asyncRequest(tid, wire -> {
+            TcpChannelHub.writeMetaData(tid, (Wire) wire, csp, cid);
+            try (DocumentContext dc = wire.writingDocument()) {
+                @NotNull final ValueOut valueOut = wire.writeEventName(eventId);
+                if (consumerOut == null)
+                    valueOut.marshallable(WriteMarshallable.EMPTY);
+                else
+                    consumerOut.writeValue(valueOut);
+            }
+        }, in -> readReply(in, reply, consumerIn), executor, hub.timeoutMs);
+    }
+
     @SuppressWarnings("SameParameterValue")
     protected void proxyReturnVoid(@NotNull final WireKey eventId,
                                    @Nullable final WriteValue consumer) {
@@ -473,9 +499,13 @@ public abstract class AbstractStatelessClient<E extends ParameterizeWireKey>
 
         // receive
         final Wire wireIn = hub.proxyReply(timeoutTime, tid);
-        checkIsData(wireIn);
+        try {
+            checkIsData(wireIn);
 
-        return readReply(wireIn, CoreFields.reply, ValueIn::bool);
+            return readReply(wireIn, CoreFields.reply, ValueIn::bool);
+        } finally {
+            hub.releaseReply();
+        }
 
     }
 
@@ -486,9 +516,13 @@ public abstract class AbstractStatelessClient<E extends ParameterizeWireKey>
 
         // receive
         final Wire wireIn = hub.proxyReply(timeoutTime, tid);
-        checkIsData(wireIn);
+        try {
+            checkIsData(wireIn);
 
-        return readReply(wireIn, CoreFields.reply, ValueIn::int64);
+            return readReply(wireIn, CoreFields.reply, ValueIn::int64);
+        } finally {
+            hub.releaseReply();
+        }
     }
 
     private <R> R readReply(@NotNull final WireIn wireIn,
@@ -551,8 +585,12 @@ public abstract class AbstractStatelessClient<E extends ParameterizeWireKey>
 
         // receive
         final Wire wire = hub.proxyReply(timeoutTime, tid);
-        checkIsData(wire);
-        return readReply(wire, reply, c);
+        try {
+            checkIsData(wire);
+            return readReply(wire, reply, c);
+        } finally {
+            hub.releaseReply();
+        }
 
     }
 
@@ -562,8 +600,12 @@ public abstract class AbstractStatelessClient<E extends ParameterizeWireKey>
         final long timeoutTime = startTime + hub.timeoutMs;
 
         final Wire wireIn = hub.proxyReply(timeoutTime, tid);
-        checkIsData(wireIn);
-        return wireIn.read(reply).int32();
+        try {
+            checkIsData(wireIn);
+            return wireIn.read(reply).int32();
+        } finally {
+            hub.releaseReply();
+        }
 
     }
 
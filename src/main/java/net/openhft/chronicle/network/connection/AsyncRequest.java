@@ -0,0 +1,134 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.ConnectionDroppedException;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.Wires;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * A request whose reply completes a future, rather than a thread blocking in {@link TcpChannelHub#proxyReply(long,
+ * long)}.
+ * <p>
+ * The reply is decoded on the hub's read thread, as the wire is only valid for the duration of the callback, and the
+ * future is then completed on that thread or on the executor supplied. Timeouts are run by one shared timer thread.
+ */
+final class AsyncRequest<T> extends CompletableFuture<T> implements AsyncTemporarySubscription {
+
+    private static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
+    private final long tid;
+    @NotNull
+    private final Function<WireIn, T> reply;
+    @Nullable
+    private final Executor executor;
+    @NotNull
+    private final Runnable onDone;
+    @Nullable
+    private volatile ScheduledFuture<?> timeout;
+
+    AsyncRequest(final long tid,
+                 @NotNull final Function<WireIn, T> reply,
+                 @Nullable final Executor executor,
+                 @NotNull final Runnable onDone) {
+        this.tid = tid;
+        this.reply = reply;
+        this.executor = executor;
+        this.onDone = onDone;
+    }
+
+    @NotNull
+    private static ScheduledThreadPoolExecutor newTimer() {
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                new NamedThreadFactory("tcp-async-request-timeout", true));
+        // most requests complete before they time out, so don't leave their timeouts in the queue
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    void startTimeout(final long timeoutMs) {
+        timeout = TIMER.schedule(() -> {
+            completeExceptionally(new TimeoutException("tid=" + tid + " timeoutMs=" + timeoutMs));
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public long tid() {
+        return tid;
+    }
+
+    @Override
+    public void applySubscribe() {
+        // the request is written by TcpChannelHub.asyncRequest
+    }
+
+    @Override
+    public void onConsumer(@NotNull final WireIn inWire) {
+        final T value;
+        try {
+            // subscriptions are passed the message at its header, with either reader
+            final int header = inWire.bytes().readInt();
+            if (!Wires.isData(header))
+                throw new IllegalStateException("expecting a data blob, header=" + Integer.toHexString(header));
+            value = reply.apply(inWire);
+        } catch (Throwable t) {
+            completeExceptionally(t);
+            return;
+        }
+        if (executor == null) {
+            complete(value);
+            return;
+        }
+        try {
+            executor.execute(() -> complete(value));
+        } catch (RejectedExecutionException e) {
+            completeExceptionally(e);
+        }
+    }
+
+    @Override
+    public void onClose() {
+        completeExceptionally(new ConnectionDroppedException("Connection Closed : the connection to the " +
+                "server has been dropped."));
+    }
+
+    @Override
+    public boolean complete(final T value) {
+        if (!super.complete(value))
+            return false;
+        done();
+        return true;
+    }
+
+    @Override
+    public boolean completeExceptionally(final Throwable ex) {
+        if (!super.completeExceptionally(ex))
+            return false;
+        done();
+        return true;
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        if (!super.cancel(mayInterruptIfRunning))
+            return false;
+        done();
+        return true;
+    }
+
+    private void done() {
+        final ScheduledFuture<?> timeout = this.timeout;
+        if (timeout != null)
+            timeout.cancel(false);
+        onDone.run();
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncRequest{tid=" + tid + '}';
+    }
+}
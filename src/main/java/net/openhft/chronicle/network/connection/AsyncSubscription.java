@@ -36,7 +36,8 @@ interface AsyncSubscription {
     void applySubscribe();
 
     /**
-     * Implement this to consume the subscription
+     * Implement this to consume the subscription. This is called on the hub's read thread, or its event loop with
+     * {@code tcp.client.eventLoopReads}, with the message positioned at its length header either way.
      *
      * @param inWire the wire to write the subscription to
      */
@@ -0,0 +1,197 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.bytes.ConnectionDroppedException;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lets many threads write to one socket without each of them holding the write lock while it encodes and writes.
+ * <p>
+ * Each caller encodes its message into a buffer of its own and queues it. Whichever caller then obtains the lock
+ * writes every queued message with one gathering write, while the others wait for their message to be written, in the
+ * flat-combining style. A waiter which has parked is unparked once its message has been written.
+ */
+final class CombiningWriter {
+    static final int MAX_BATCH = Integer.getInteger("tcp.client.combining.maxBatch", 64);
+
+    private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+    private static final int QUEUED = 0;
+    private static final int WRITTEN = 1;
+    private static final int FAILED = 2;
+
+    private final Queue<Frame> queue = new ConcurrentLinkedQueue<>();
+    @NotNull
+    private final ReentrantLock lock;
+    @NotNull
+    private final GatheringWriter writer;
+    @NotNull
+    private final WireType wireType;
+    // frames not being used by a caller, and every frame so they can be released on close
+    private final Queue<Frame> free = new ConcurrentLinkedQueue<>();
+    private final Queue<Frame> frames = new ConcurrentLinkedQueue<>();
+
+    // only used by the thread holding the lock
+    private final Frame[] batch = new Frame[MAX_BATCH];
+    private final ByteBuffer[] buffers = new ByteBuffer[MAX_BATCH];
+
+    CombiningWriter(@NotNull final ReentrantLock lock,
+                    @NotNull final GatheringWriter writer,
+                    @NotNull final WireType wireType) {
+        this.lock = lock;
+        this.writer = writer;
+        this.wireType = wireType;
+        clearBatch();
+    }
+
+    /**
+     * encodes and writes a message, returning once it has been written
+     *
+     * @param message writes the whole message, including its meta data
+     * @throws ConnectionDroppedException if the message could not be written
+     */
+    void write(@NotNull final WriteMarshallable message) throws ConnectionDroppedException {
+        final Frame frame = acquireFrame();
+        try {
+            write(message, frame);
+        } finally {
+            free.add(frame);
+        }
+    }
+
+    @NotNull
+    private Frame acquireFrame() {
+        final Frame frame = free.poll();
+        if (frame != null)
+            return frame;
+        final Frame created = new Frame(wireType.apply(Bytes.elasticByteBuffer()));
+        frames.add(created);
+        return created;
+    }
+
+    private void write(@NotNull final WriteMarshallable message, @NotNull final Frame frame) {
+        final Wire wire = frame.wire;
+        wire.clear();
+        message.writeMarshallable(wire);
+
+        final Bytes<?> bytes = wire.bytes();
+        // the buffer can change as the bytes grow
+        final ByteBuffer buffer = (ByteBuffer) bytes.underlyingObject();
+        buffer.limit((int) bytes.writePosition());
+        buffer.position(0);
+        frame.buffer = buffer;
+        frame.error = null;
+        frame.waiter = Thread.currentThread();
+        frame.state = QUEUED;
+        queue.add(frame);
+
+        // the lock can be held for a while if the socket's send buffer is full
+        final WriteBackoff backoff = frame.backoff;
+        backoff.reset();
+        for (int i = 0; frame.state == QUEUED; i++) {
+            if (lock.tryLock()) {
+                try {
+                    combine();
+                } finally {
+                    lock.unlock();
+                }
+            } else if (i < 100) {
+                Jvm.safepoint();
+            } else {
+                backoff.pause();
+            }
+        }
+
+        if (frame.state == FAILED) {
+            final Throwable error = frame.error;
+            throw error instanceof ConnectionDroppedException
+                    ? (ConnectionDroppedException) error
+                    : new ConnectionDroppedException(error);
+        }
+    }
+
+    /**
+     * releases the buffers, once no more messages will be written
+     */
+    void close() {
+        Frame frame;
+        while ((frame = frames.poll()) != null)
+            TcpChannelHub.releaseWire(frame.wire);
+        free.clear();
+    }
+
+    private void combine() {
+        for (; ; ) {
+            int count = 0;
+            Frame frame;
+            while (count < MAX_BATCH && (frame = queue.poll()) != null) {
+                batch[count] = frame;
+                buffers[count] = frame.buffer;
+                count++;
+            }
+            if (count == 0)
+                return;
+
+            int state = WRITTEN;
+            Throwable error = null;
+            try {
+                writer.write(buffers);
+            } catch (Throwable t) {
+                state = FAILED;
+                error = t;
+            }
+            final Thread current = Thread.currentThread();
+            for (int i = 0; i < count; i++) {
+                final Frame f = batch[i];
+                // read before the frame is handed back, as it can then be reused by another thread
+                final Thread waiter = f.waiter;
+                f.error = error;
+                // publishes the error
+                f.state = state;
+                if (waiter != current)
+                    LockSupport.unpark(waiter);
+            }
+            clearBatch();
+        }
+    }
+
+    private void clearBatch() {
+        for (int i = 0; i < MAX_BATCH; i++) {
+            batch[i] = null;
+            // unused slots are written as nothing
+            buffers[i] = EMPTY;
+        }
+    }
+
+    @FunctionalInterface
+    interface GatheringWriter {
+        /**
+         * writes all the remaining bytes of the buffers
+         */
+        void write(@NotNull ByteBuffer[] buffers) throws IOException;
+    }
+
+    private static final class Frame {
+        @NotNull
+        final Wire wire;
+        final WriteBackoff backoff = new WriteBackoff();
+        ByteBuffer buffer;
+        Throwable error;
+        Thread waiter;
+        volatile int state = WRITTEN;
+
+        Frame(@NotNull final Wire wire) {
+            this.wire = wire;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package net.openhft.chronicle.network.connection;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * An open addressing map of long keys to values, for routing replies by {@code tid}.
+ * <p>
+ * {@link #get(long)} doesn't lock so the reader thread is never held up by callers registering or removing their tids,
+ * changes take a short lock between themselves, a {@link ReentrantLock} so a virtual thread waiting for it doesn't pin
+ * its carrier. The keys {@code 0} and {@link Long#MIN_VALUE} are reserved.
+ *
+ * @param <V> the type of value
+ */
+final class ConcurrentLongObjectMap<V> {
+    private static final long FREE = 0;
+    private static final long REMOVED = Long.MIN_VALUE;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    @NotNull
+    private volatile Table<V> table;
+    // guarded by writeLock
+    private int size;
+    private int removed;
+
+    ConcurrentLongObjectMap(final int initialCapacity) {
+        table = new Table<>(capacityFor(initialCapacity));
+    }
+
+    private static int capacityFor(final int entries) {
+        // keep the table at most half full
+        return Integer.highestOneBit(Math.max(entries, 8) * 2 - 1) << 1;
+    }
+
+    private static int hash(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void checkKey(final long key) {
+        if (key == FREE || key == REMOVED)
+            throw new IllegalArgumentException("Reserved key " + key);
+    }
+
+    /**
+     * @return the value for this key, or null, without locking
+     */
+    @Nullable
+    V get(final long key) {
+        final Table<V> t = table;
+        for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask) {
+            final long k = t.keys.get(i);
+            if (k == FREE)
+                return null;
+            if (k == key) {
+                final V value = t.values.get(i);
+                // the slot could have been reused for another key after we read the key
+                if (t.keys.get(i) == key)
+                    return value;
+                return get(key);
+            }
+        }
+    }
+
+    @Nullable
+    V put(final long key, @NotNull final V value) {
+        checkKey(key);
+        writeLock.lock();
+        try {
+            final Table<V> t = table;
+            int free = -1;
+            for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask) {
+                final long k = t.keys.get(i);
+                if (k == key)
+                    return t.values.getAndSet(i, value);
+                if (k == REMOVED) {
+                    if (free < 0)
+                        free = i;
+                } else if (k == FREE) {
+                    if (free < 0) {
+                        free = i;
+                    } else {
+                        removed--;
+                    }
+                    // set the value before the key so a reader finding the key sees the value
+                    t.values.set(free, value);
+                    t.keys.set(free, key);
+                    size++;
+                    if ((size + removed) * 2 > t.keys.length())
+                        rehash();
+                    return null;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Nullable
+    V remove(final long key) {
+        checkKey(key);
+        writeLock.lock();
+        try {
+            final Table<V> t = table;
+            for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask) {
+                final long k = t.keys.get(i);
+                if (k == FREE)
+                    return null;
+                if (k == key) {
+                    final V value = t.values.getAndSet(i, null);
+                    t.keys.set(i, REMOVED);
+                    size--;
+                    removed++;
+                    return value;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * removes the key only if it maps to {@code value}
+     *
+     * @return true if it was removed
+     */
+    boolean remove(final long key, @NotNull final V value) {
+        checkKey(key);
+        writeLock.lock();
+        try {
+            final Table<V> t = table;
+            for (int i = hash(key) & t.mask; ; i = (i + 1) & t.mask) {
+                final long k = t.keys.get(i);
+                if (k == FREE)
+                    return false;
+                if (k == key) {
+                    if (t.values.get(i) != value)
+                        return false;
+                    t.values.set(i, null);
+                    t.keys.set(i, REMOVED);
+                    size--;
+                    removed++;
+                    return true;
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * removes all the values which match
+     */
+    void removeIf(@NotNull final Predicate<? super V> predicate) {
+        writeLock.lock();
+        try {
+            final Table<V> t = table;
+            for (int i = 0; i < t.keys.length(); i++) {
+                final long k = t.keys.get(i);
+                if (k == FREE || k == REMOVED)
+                    continue;
+                final V value = t.values.get(i);
+                if (value != null && predicate.test(value))
+                    remove(k);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * calls the consumer with each value, without locking, values added or removed during the call may or may not be
+     * seen.
+     */
+    void forEachValue(@NotNull final Consumer<? super V> consumer) {
+        final Table<V> t = table;
+        for (int i = 0; i < t.keys.length(); i++) {
+            final long k = t.keys.get(i);
+            if (k == FREE || k == REMOVED)
+                continue;
+            final V value = t.values.get(i);
+            if (value != null)
+                consumer.accept(value);
+        }
+    }
+
+    int size() {
+        writeLock.lock();
+        try {
+            return size;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void clear() {
+        writeLock.lock();
+        try {
+            table = new Table<>(table.keys.length());
+            size = removed = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * copies the entries to a new table, dropping the removed keys, readers carry on with the old table until then.
+     */
+    private void rehash() {
+        final Table<V> old = table;
+        final Table<V> t = new Table<>(Math.max(old.keys.length(), capacityFor(size)));
+        for (int i = 0; i < old.keys.length(); i++) {
+            final long k = old.keys.get(i);
+            if (k == FREE || k == REMOVED)
+                continue;
+            int j = hash(k) & t.mask;
+            while (t.keys.get(j) != FREE)
+                j = (j + 1) & t.mask;
+            t.values.set(j, old.values.get(i));
+            t.keys.set(j, k);
+        }
+        removed = 0;
+        table = t;
+    }
+
+    private static final class Table<V> {
+        final int mask;
+        final AtomicLongArray keys;
+        final AtomicReferenceArray<V> values;
+
+        Table(final int capacity) {
+            mask = capacity - 1;
+            keys = new AtomicLongArray(capacity);
+            values = new AtomicReferenceArray<>(capacity);
+        }
+    }
+}
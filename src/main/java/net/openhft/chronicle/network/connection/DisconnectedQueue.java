@@ -0,0 +1,94 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Holds messages sent while the connection is being re-established, off heap and up to a maximum size, so they can be
+ * sent in order once it has been.
+ * <p>
+ * Guarded by the hub's outBytesLock.
+ */
+final class DisconnectedQueue {
+    private final long maxBytes;
+    @Nullable
+    private Bytes<?> bytes;
+
+    DisconnectedQueue(final long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return a queue if one has been configured with {@code tcp.client.disconnectedQueue.maxBytes}, otherwise null
+     */
+    @Nullable
+    static DisconnectedQueue create() {
+        // read for each hub, so it can be enabled for one
+        final long maxBytes = Long.getLong("tcp.client.disconnectedQueue.maxBytes", 0);
+        return maxBytes > 0 ? new DisconnectedQueue(maxBytes) : null;
+    }
+
+    /**
+     * @param message one or more size prefixed documents
+     * @return false if there isn't room for the message
+     */
+    boolean offer(@NotNull final Bytes<?> message) {
+        final long length = message.readRemaining();
+        if (length == 0)
+            return true;
+        if (bytes == null)
+            bytes = Bytes.allocateElasticDirect(Math.min(maxBytes, 64 << 10));
+        if (bytes.writePosition() + length > maxBytes)
+            return false;
+        bytes.write(message, message.readPosition(), length);
+        return true;
+    }
+
+    /**
+     * @param buffers the remaining bytes of each are one or more size prefixed documents, they are all queued or none
+     *                are
+     * @return false if there isn't room for the messages
+     */
+    boolean offer(@NotNull final ByteBuffer[] buffers) {
+        long length = 0;
+        for (@NotNull ByteBuffer buffer : buffers)
+            length += buffer.remaining();
+        if (length == 0)
+            return true;
+        if (bytes == null)
+            bytes = Bytes.allocateElasticDirect(Math.min(maxBytes, 64 << 10));
+        if (bytes.writePosition() + length > maxBytes)
+            return false;
+        bytes.ensureCapacity(bytes.writePosition() + length);
+        for (@NotNull ByteBuffer buffer : buffers)
+            bytes.writeSome(buffer);
+        return true;
+    }
+
+    boolean isEmpty() {
+        return bytes == null || bytes.writePosition() == 0;
+    }
+
+    /**
+     * appends the queued messages to {@code out}, call {@link #clear()} once they have been sent
+     */
+    void copyTo(@NotNull final Bytes<?> out) {
+        if (bytes != null)
+            out.write(bytes, 0, bytes.writePosition());
+    }
+
+    void clear() {
+        if (bytes != null)
+            bytes.clear();
+    }
+
+    void release() {
+        if (bytes != null) {
+            bytes.releaseLast();
+            bytes = null;
+        }
+    }
+}
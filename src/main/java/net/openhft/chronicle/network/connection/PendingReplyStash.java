@@ -0,0 +1,241 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.openhft.chronicle.wire.Wires.SIZE_OF_SIZE;
+
+/**
+ * Holds replies which arrive before their tid has been registered, e.g. when the caller is descheduled between
+ * sending a request and waiting for its reply, so the read thread doesn't have to wait for the caller.
+ * <p>
+ * Replies are handed over when the tid is registered, or dropped once they are older than {@link #TTL_MS} or if more
+ * than {@link #MAX_BYTES} are held. A reply for a {@link ReplySlot} is handed over by the thread registering it. A
+ * reply for a subscription is handed back to the read thread, so the subscription is only ever called on that
+ * thread, which delivers it before any later reply. The blocking read thread does this when the next message
+ * arrives, which is at most a heartbeat later.
+ */
+final class PendingReplyStash {
+    static final long TTL_MS = Long.getLong("tcp.client.pendingReply.ttlMs", 3_000);
+    static final long MAX_BYTES = Long.getLong("tcp.client.pendingReply.maxBytes", 16 << 20);
+
+    @NotNull
+    private final ConcurrentLongObjectMap<Object> registered;
+    // in the order the tids were first stashed, so the oldest expire first
+    private final Map<Long, List<Reply>> replies = new LinkedHashMap<>();
+    // claimed by subscriptions, in the order they arrived, for the read thread to deliver
+    private final List<Reply> claimed = new ArrayList<>();
+    // the claimed replies the read thread is delivering
+    private int delivering;
+    // the tids stashed plus the replies claimed but not yet delivered, so the read thread doesn't deliver a later
+    // reply for the same tid ahead of them
+    private volatile int pending;
+    private long bytes;
+
+    PendingReplyStash(@NotNull final ConcurrentLongObjectMap<Object> registered) {
+        this.registered = registered;
+    }
+
+    boolean isEmpty() {
+        return pending == 0;
+    }
+
+    /**
+     * Called by the read thread with a reply for a tid which wasn't registered, or while replies are pending. Any
+     * replies claimed by subscriptions are delivered to {@code consumer} first. The reply is then stashed unless the
+     * tid has been registered since, and has no earlier replies stashed.
+     *
+     * @param body the reply, positioned after its header
+     * @return what the tid is registered to, or null if the reply was stashed or dropped
+     */
+    @Nullable
+    Object stashOrGet(final long tid, final int header, @NotNull final Bytes<?> body, @NotNull final ReplyConsumer consumer) {
+        for (; ; ) {
+            final List<Reply> toDeliver;
+            synchronized (this) {
+                if (claimed.isEmpty())
+                    return stashOrGet0(tid, header, body);
+                toDeliver = takeClaimed();
+            }
+            deliver(toDeliver, consumer);
+        }
+    }
+
+    /**
+     * called by the read thread, delivers the replies claimed by subscriptions to {@code consumer} in the order they
+     * arrived
+     */
+    void deliverClaimed(@NotNull final ReplyConsumer consumer) {
+        if (pending == 0)
+            return;
+        final List<Reply> toDeliver;
+        synchronized (this) {
+            if (claimed.isEmpty())
+                return;
+            toDeliver = takeClaimed();
+        }
+        deliver(toDeliver, consumer);
+    }
+
+    @Nullable
+    private Object stashOrGet0(final long tid, final int header, @NotNull final Bytes<?> body) {
+        final long now = System.currentTimeMillis();
+        expire(now);
+
+        // published before the lookup, so a tid registered concurrently either is found or calls claim()
+        pending = count() + 1;
+        final Object o = registered.get(tid);
+        List<Reply> list = replies.get(tid);
+        if (o != null && list == null) {
+            pending = count();
+            return o;
+        }
+
+        final long size = SIZE_OF_SIZE + body.readRemaining();
+        if (bytes + size > MAX_BYTES) {
+            pending = count();
+            Jvm.warn().on(TcpChannelHub.class, "dropping reply for tid=" + tid + ", " + bytes +
+                    " bytes of replies are already waiting for their tid to be registered");
+            return null;
+        }
+
+        // the header is kept in front of the body, as the read thread passes it
+        final Bytes<?> copy = Bytes.elasticByteBuffer((int) size);
+        copy.writeInt(header);
+        copy.write(body, body.readPosition(), body.readRemaining());
+        copy.readSkip(SIZE_OF_SIZE);
+        if (list == null) {
+            list = new ArrayList<>(1);
+            replies.put(tid, list);
+        }
+        list.add(new Reply(tid, header, copy, size, now + TTL_MS));
+        bytes += size;
+        pending = count();
+        return null;
+    }
+
+    /**
+     * Called once {@code tid} has been registered to {@code registered}. Replies stashed for a {@link ReplySlot} are
+     * passed to the consumer now, while replies for a subscription are left for the read thread to deliver. The read
+     * thread waits for this to finish before it delivers any later reply for the tid.
+     */
+    synchronized void claim(final long tid, @NotNull final Object registered, @NotNull final ReplyConsumer consumer) {
+        final List<Reply> list = replies.remove(tid);
+        if (list == null)
+            return;
+        if (!(registered instanceof ReplySlot)) {
+            for (Reply reply : list)
+                reply.registered = registered;
+            claimed.addAll(list);
+            pending = count();
+            return;
+        }
+        try {
+            for (Reply reply : list)
+                consumer.accept(tid, registered, reply.header, reply.body);
+        } finally {
+            for (Reply reply : list)
+                release(reply);
+            pending = count();
+        }
+    }
+
+    synchronized void clear() {
+        for (List<Reply> list : replies.values())
+            for (Reply reply : list)
+                release(reply);
+        replies.clear();
+        for (Reply reply : claimed)
+            release(reply);
+        claimed.clear();
+        pending = count();
+    }
+
+    // called holding the lock
+    @NotNull
+    private List<Reply> takeClaimed() {
+        final List<Reply> list = new ArrayList<>(claimed);
+        claimed.clear();
+        delivering += list.size();
+        return list;
+    }
+
+    private void deliver(@NotNull final List<Reply> list, @NotNull final ReplyConsumer consumer) {
+        try {
+            for (Reply reply : list) {
+                assert reply.registered != null;
+                consumer.accept(reply.tid, reply.registered, reply.header, reply.body);
+            }
+        } finally {
+            synchronized (this) {
+                for (Reply reply : list)
+                    release(reply);
+                delivering -= list.size();
+                pending = count();
+            }
+        }
+    }
+
+    private int count() {
+        return replies.size() + claimed.size() + delivering;
+    }
+
+    private void expire(final long now) {
+        for (Iterator<Map.Entry<Long, List<Reply>>> it = replies.entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<Long, List<Reply>> entry = it.next();
+            final List<Reply> list = entry.getValue();
+            if (list.get(0).expiresMs > now)
+                // later tids were first stashed later
+                break;
+            if (Jvm.isDebugEnabled(TcpChannelHub.class))
+                Jvm.debug().on(TcpChannelHub.class, "unable to respond to tid=" + entry.getKey() + ", it was not " +
+                        "registered within " + TTL_MS + " ms");
+            for (Reply reply : list)
+                release(reply);
+            it.remove();
+        }
+        pending = count();
+    }
+
+    private void release(@NotNull final Reply reply) {
+        bytes -= reply.size;
+        reply.body.releaseLast();
+    }
+
+    @FunctionalInterface
+    interface ReplyConsumer {
+        /**
+         * @param registered what the tid is registered to
+         * @param body       the reply, positioned after its header, which is just before it
+         */
+        void accept(long tid, @NotNull Object registered, int header, @NotNull Bytes<?> body);
+    }
+
+    private static final class Reply {
+        final long tid;
+        final int header;
+        @NotNull
+        final Bytes<?> body;
+        final long size;
+        final long expiresMs;
+        // set when claimed by a subscription
+        @Nullable
+        Object registered;
+
+        Reply(final long tid, final int header, @NotNull final Bytes<?> body, final long size, final long expiresMs) {
+            this.tid = tid;
+            this.header = header;
+            this.body = body;
+            this.size = size;
+            this.expiresMs = expiresMs;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.core.io.IOTools;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.openhft.chronicle.bytes.Bytes.elasticByteBuffer;
+
+/**
+ * The buffers sync replies are read into, leased for one request at a time rather than kept by every thread which has
+ * ever made a request.
+ * <p>
+ * Buffers are pooled by size class, powers of two from {@link #MIN_SIZE}, so a large reply doesn't leave every
+ * buffer large. Up to {@link #PER_CLASS} buffers of each class are kept, the rest are released.
+ */
+public final class ReplyBufferPool {
+    static final int MIN_SIZE = 4 << 10;
+    static final int CLASSES = Integer.getInteger("tcp.client.replyPool.classes", 12);
+    static final int PER_CLASS = Integer.getInteger("tcp.client.replyPool.perClass", 16);
+
+    @NotNull
+    private final WireType wireType;
+    private final Queue<Wire>[] free;
+    private final AtomicIntegerArray freeCounts = new AtomicIntegerArray(CLASSES);
+    private final AtomicInteger leases = new AtomicInteger();
+    private final AtomicInteger peakLeases = new AtomicInteger();
+    private final AtomicLong created = new AtomicLong();
+    private volatile boolean closed;
+
+    @SuppressWarnings("unchecked")
+    ReplyBufferPool(@NotNull final WireType wireType) {
+        this.wireType = wireType;
+        this.free = new Queue[CLASSES];
+        for (int i = 0; i < CLASSES; i++)
+            free[i] = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * @return the smallest size class which holds {@code size} bytes, which is {@link #CLASSES} or more if none does
+     */
+    static int sizeClass(final long size) {
+        int sizeClass = 0;
+        while ((long) MIN_SIZE << sizeClass < size)
+            sizeClass++;
+        return sizeClass;
+    }
+
+    /**
+     * @return an empty wire with room for at least {@code size} bytes
+     */
+    @NotNull
+    Wire acquire(final long size) {
+        final int sizeClass = sizeClass(size);
+        Wire wire = sizeClass < CLASSES ? free[sizeClass].poll() : null;
+        if (wire == null) {
+            wire = wireType.apply(elasticByteBuffer((int) Math.max(size, (long) MIN_SIZE << Math.min(sizeClass, CLASSES - 1))));
+            IOTools.unmonitor(wire.bytes());
+            created.incrementAndGet();
+        } else {
+            freeCounts.decrementAndGet(sizeClass);
+        }
+        wire.clear();
+
+        final int leased = leases.incrementAndGet();
+        for (int peak; (peak = peakLeases.get()) < leased; )
+            if (peakLeases.compareAndSet(peak, leased))
+                break;
+        return wire;
+    }
+
+    void release(@NotNull final Wire wire) {
+        leases.decrementAndGet();
+
+        // the largest class it can hold, as it may have grown
+        final long capacity = wire.bytes().realCapacity();
+        int sizeClass = sizeClass(capacity);
+        if ((long) MIN_SIZE << sizeClass > capacity)
+            sizeClass--;
+        if (closed || sizeClass < 0 || sizeClass >= CLASSES) {
+            TcpChannelHub.releaseWire(wire);
+            return;
+        }
+        if (freeCounts.incrementAndGet(sizeClass) > PER_CLASS) {
+            freeCounts.decrementAndGet(sizeClass);
+            TcpChannelHub.releaseWire(wire);
+            return;
+        }
+        free[sizeClass].add(wire);
+        // in case it was closed while this was being added
+        if (closed)
+            releaseFree();
+    }
+
+    /**
+     * @return the number of buffers currently leased
+     */
+    public int leases() {
+        return leases.get();
+    }
+
+    /**
+     * @return the most buffers which have been leased at once
+     */
+    public int peakLeases() {
+        return peakLeases.get();
+    }
+
+    /**
+     * @return the number of buffers which have been allocated
+     */
+    public long created() {
+        return created.get();
+    }
+
+    void close() {
+        closed = true;
+        releaseFree();
+    }
+
+    private void releaseFree() {
+        for (int i = 0; i < CLASSES; i++) {
+            Wire wire;
+            while ((wire = free[i].poll()) != null) {
+                freeCounts.decrementAndGet(i);
+                TcpChannelHub.releaseWire(wire);
+            }
+        }
+    }
+}
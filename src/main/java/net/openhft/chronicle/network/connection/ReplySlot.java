@@ -0,0 +1,252 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.wire.Wire;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Where the reader thread hands a synchronous reply to the thread waiting for it.
+ * <p>
+ * The waiter busy spins for a short while, as most replies arrive within a few microseconds, then yields, and only
+ * then parks. The reader only pays for an unpark when the waiter has actually parked.
+ * <p>
+ * The reader only completes the slot if it is still waiting for the same tid, so a waiter which has given up and
+ * moved on to another tid never sees the old reply.
+ * <p>
+ * With {@code tcp.client.virtualThreads} the waiter parks straight away by default, as spinning would hold up the
+ * other virtual threads sharing its carrier.
+ */
+final class ReplySlot {
+    static final long SPIN_NANOS = Long.getLong("tcp.reply.spin.ns", TcpChannelHub.VIRTUAL_THREADS ? 0 : 20_000);
+    static final long YIELD_NANOS = Long.getLong("tcp.reply.yield.ns", TcpChannelHub.VIRTUAL_THREADS ? 0 : 200_000);
+
+    private static final int WAITING = 0;
+    // the reader is writing the reply
+    private static final int COMPLETING = 1;
+    private static final int READY = 2;
+    private static final int CLOSED = 3;
+    private static final AtomicIntegerFieldUpdater<ReplySlot> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(ReplySlot.class, "state");
+
+    @NotNull
+    private final ReplyBufferPool pool;
+    // leased from the pool by the reader, and returned by the waiter
+    @Nullable
+    private Wire reply;
+    private volatile long tid;
+    private volatile int state = CLOSED;
+    private volatile Thread parked;
+    // only used by the waiter
+    private long waitStartNs;
+    // the last request sent by the waiter, to replay on reconnect, guarded by the hub's outBytesLock
+    @Nullable
+    private Bytes<?> request;
+    // the request is in the hub's DisconnectedQueue too, so isn't replayed from here on reconnect
+    private boolean requestQueued;
+
+    ReplySlot(@NotNull ReplyBufferPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * called by the reader
+     *
+     * @return an empty wire to read a reply of {@code size} bytes into, before calling {@link #complete(long, Wire)}
+     */
+    @NotNull
+    Wire acquireReply(long size) {
+        return pool.acquire(size);
+    }
+
+    /**
+     * called by the waiter
+     *
+     * @return the reply, or an empty wire if there wasn't one, which is leased until {@link #releaseReply()}
+     */
+    @NotNull
+    Wire reply() {
+        if (reply == null)
+            reply = pool.acquire(0);
+        return reply;
+    }
+
+    /**
+     * returns the reply to the pool, called by the waiter once it has read the reply
+     */
+    void releaseReply() {
+        final Wire reply = this.reply;
+        if (reply != null) {
+            this.reply = null;
+            pool.release(reply);
+        }
+    }
+
+    long tid() {
+        return tid;
+    }
+
+    /**
+     * readies the slot to wait for the reply to {@code tid}, called by the waiter before the slot is registered
+     */
+    void reset(long tid) {
+        // in case the last reply wasn't released
+        releaseReply();
+        this.tid = tid;
+        this.waitStartNs = System.nanoTime();
+        this.parked = null;
+        this.state = WAITING;
+    }
+
+    boolean isReady() {
+        return state == READY;
+    }
+
+    boolean isWaiting() {
+        final int state = this.state;
+        return state == WAITING || state == COMPLETING;
+    }
+
+    /**
+     * keeps a copy of a request sent by the waiter, so it can be sent again if the connection is dropped before the
+     * reply arrives
+     */
+    void recordRequest(@NotNull final Bytes<?> message) {
+        if (request == null)
+            // a ByteBuffer, so it is reclaimed if the slot is dropped with its thread without being released
+            request = Bytes.elasticByteBuffer((int) message.readRemaining());
+        request.clear();
+        request.write(message, message.readPosition(), message.readRemaining());
+        requestQueued = false;
+    }
+
+    /**
+     * the request recorded was queued to be sent on reconnect rather than written, so it is only sent once
+     */
+    void requestQueued() {
+        requestQueued = true;
+    }
+
+    /**
+     * appends the last request recorded to {@code out}, unless it is queued to be sent anyway
+     */
+    void copyRequestTo(@NotNull final Bytes<?> out) {
+        if (request != null && !requestQueued)
+            out.write(request, 0, request.writePosition());
+    }
+
+    /**
+     * the request has been written, so it is replayed if the connection is dropped again
+     */
+    void requestSent() {
+        requestQueued = false;
+    }
+
+    boolean hasRequest() {
+        return request != null;
+    }
+
+    /**
+     * releases the request recorded, called holding the hub's outBytesLock
+     */
+    void releaseRequest() {
+        if (request != null) {
+            request.releaseLast();
+            request = null;
+        }
+    }
+
+    /**
+     * releases the reply and request buffers
+     */
+    void release() {
+        releaseReply();
+        releaseRequest();
+    }
+
+    /**
+     * called by the reader once the reply has been written, the reply is returned to the pool if the slot is no
+     * longer waiting for {@code tid}
+     *
+     * @param reply from {@link #acquireReply(long)}
+     * @return true if the waiter was handed the reply
+     */
+    boolean complete(long tid, @NotNull Wire reply) {
+        if (!STATE.compareAndSet(this, WAITING, COMPLETING)) {
+            pool.release(reply);
+            return false;
+        }
+        // reset() sets the tid before the state, so this is the tid being waited for
+        if (this.tid != tid) {
+            state = WAITING;
+            pool.release(reply);
+            return false;
+        }
+        this.reply = reply;
+        state = READY;
+        wakeUp();
+        return true;
+    }
+
+    /**
+     * wakes the waiter without a reply, e.g. when the connection has been closed, unless the reply is being written
+     * in which case this waits for it
+     *
+     * @return true if the slot was closed, false if the reply arrived first
+     */
+    boolean close() {
+        for (; ; ) {
+            final int state = this.state;
+            if (state == COMPLETING) {
+                Thread.yield();
+                continue;
+            }
+            if (state == READY)
+                return false;
+            if (state == CLOSED || STATE.compareAndSet(this, WAITING, CLOSED))
+                break;
+        }
+        wakeUp();
+        return true;
+    }
+
+    private void wakeUp() {
+        // the waiter sets parked before it checks the state, so either it sees our state or we see it parked
+        final Thread t = parked;
+        if (t != null)
+            LockSupport.unpark(t);
+    }
+
+    /**
+     * waits until the slot is completed or closed, or {@code endNs} is reached
+     *
+     * @return true if the slot is no longer waiting
+     */
+    boolean await(long endNs) throws InterruptedException {
+        for (; ; ) {
+            if (!isWaiting())
+                return true;
+            final long now = System.nanoTime();
+            if (now - endNs >= 0)
+                return false;
+            if (Thread.interrupted())
+                throw new InterruptedException();
+
+            final long waited = now - waitStartNs;
+            if (waited < SPIN_NANOS) {
+                Jvm.safepoint();
+            } else if (waited < SPIN_NANOS + YIELD_NANOS) {
+                Thread.yield();
+            } else {
+                parked = Thread.currentThread();
+                if (isWaiting())
+                    LockSupport.parkNanos(this, endNs - now);
+                parked = null;
+            }
+        }
+    }
+}
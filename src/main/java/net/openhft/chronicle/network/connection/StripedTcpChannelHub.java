@@ -0,0 +1,182 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.ConnectionDroppedException;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WriteMarshallable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Spreads requests to one server across several connections, each with a {@link TcpChannelHub} of its own, so a large
+ * reply on one connection doesn't hold up the replies on the others.
+ * <p>
+ * Subscriptions are built with the hub from {@link #subscriptionHub()}, and stay on that connection, so the order of
+ * their messages is kept.
+ */
+public class StripedTcpChannelHub extends AbstractCloseable {
+
+    @NotNull
+    private final TcpChannelHub[] hubs;
+    @NotNull
+    private final Strategy strategy;
+    // the requests sent on each hub which are waiting for a reply
+    private final AtomicIntegerArray inFlight;
+    private final AtomicInteger nextSubscriptionHub = new AtomicInteger();
+
+    /**
+     * @param connections the number of connections to open
+     * @param hubFactory  creates the hub for each connection, e.g. with the connection number added to its name
+     * @param strategy    how to choose the connection for each request
+     */
+    public StripedTcpChannelHub(final int connections,
+                                @NotNull final IntFunction<TcpChannelHub> hubFactory,
+                                @NotNull final Strategy strategy) {
+        if (connections < 1)
+            throw new IllegalArgumentException("connections=" + connections);
+        this.hubs = new TcpChannelHub[connections];
+        for (int i = 0; i < connections; i++)
+            hubs[i] = hubFactory.apply(i);
+        this.strategy = strategy;
+        this.inFlight = new AtomicIntegerArray(connections);
+    }
+
+    public int connections() {
+        return hubs.length;
+    }
+
+    @NotNull
+    public TcpChannelHub hub(final int connection) {
+        return hubs[connection];
+    }
+
+    /**
+     * @return a tid which is unique across all the connections
+     */
+    public long nextUniqueTransaction(final long timeMs) {
+        return hubs[0].nextUniqueTransaction(timeMs);
+    }
+
+    /**
+     * @return the hub to build the next subscription with, subscriptions are spread across the connections in turn
+     */
+    @NotNull
+    public TcpChannelHub subscriptionHub() {
+        throwExceptionIfClosed();
+
+        return hubs[Math.floorMod(nextSubscriptionHub.getAndIncrement(), hubs.length)];
+    }
+
+    /**
+     * sends a request and blocks until the reply arrives, on a connection chosen by the {@link Strategy}
+     *
+     * @param tid     from {@link #nextUniqueTransaction(long)}
+     * @param request writes the whole request, including its meta data, see {@link TcpChannelHub#writeCombined(WriteMarshallable)}
+     * @param reply   decodes the reply, the wire is returned to the pool afterwards
+     * @return the decoded reply
+     */
+    public <T> T syncRequest(final long tid,
+                             @NotNull final WriteMarshallable request,
+                             @NotNull final Function<Wire, T> reply) throws ConnectionDroppedException, TimeoutException {
+        throwExceptionIfClosed();
+
+        final int connection = connection(tid);
+        final TcpChannelHub hub = hubs[connection];
+        inFlight.incrementAndGet(connection);
+        try {
+            hub.writeCombined(request);
+            return reply.apply(hub.proxyReply(hub.timeoutMs, tid));
+        } finally {
+            hub.releaseReply();
+            inFlight.decrementAndGet(connection);
+        }
+    }
+
+    /**
+     * sends a request without blocking for the reply, on a connection chosen by the {@link Strategy}, see {@link
+     * TcpChannelHub#asyncRequest(long, WriteMarshallable, Function, Executor, long)}
+     */
+    @NotNull
+    public <T> CompletableFuture<T> asyncRequest(final long tid,
+                                                 @NotNull final WriteMarshallable request,
+                                                 @NotNull final Function<WireIn, T> reply,
+                                                 @Nullable final Executor executor,
+                                                 final long timeoutMs) {
+        throwExceptionIfClosed();
+
+        final int connection = connection(tid);
+        inFlight.incrementAndGet(connection);
+        final CompletableFuture<T> future;
+        try {
+            future = hubs[connection].asyncRequest(tid, request, reply, executor, timeoutMs);
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet(connection);
+            throw e;
+        }
+        future.whenComplete((t, e) -> inFlight.decrementAndGet(connection));
+        return future;
+    }
+
+    /**
+     * @return the requests sent on a connection which are waiting for a reply
+     */
+    int inFlight(final int connection) {
+        return inFlight.get(connection);
+    }
+
+    int connection(final long tid) {
+        final int n = hubs.length;
+        switch (strategy) {
+            case CALLER_THREAD:
+                return (int) Math.floorMod(Thread.currentThread().getId(), (long) n);
+            case TID:
+                // tids are mostly sequential, so mix the bits
+                return Math.floorMod(Long.hashCode(tid * 0x9E3779B97F4A7C15L), n);
+            case LEAST_IN_FLIGHT:
+            default:
+                int best = 0;
+                int bestInFlight = Integer.MAX_VALUE;
+                for (int i = 0; i < n; i++) {
+                    final int count = inFlight.get(i);
+                    if (count < bestInFlight) {
+                        best = i;
+                        bestInFlight = count;
+                    }
+                }
+                return best;
+        }
+    }
+
+    @Override
+    protected void performClose() {
+        Closeable.closeQuietly((Object[]) hubs);
+    }
+
+    /**
+     * how a connection is chosen for each request
+     */
+    public enum Strategy {
+        /**
+         * each thread always uses the same connection, so its requests are sent in order
+         */
+        CALLER_THREAD,
+        /**
+         * by a hash of the tid
+         */
+        TID,
+        /**
+         * the connection with the fewest requests waiting for a reply
+         */
+        LEAST_IN_FLIGHT
+    }
+}
@@ -49,13 +49,19 @@ import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static java.lang.Integer.getInteger;
@@ -80,6 +86,12 @@ public final class TcpChannelHub extends AbstractCloseable {
     private static final int HEATBEAT_PING_PERIOD =
             getInteger("heartbeat.ping.period",
                     Jvm.isDebug() ? 30_000 : 5_000);
+    // the least room the read thread leaves to read into, so a run of small messages is read with one socket read
+    private static final int READ_AHEAD_SIZE = Math.max(SIZE_OF_SIZE, getInteger("tcp.client.readAhead", 128 << 10));
+    // for requests made from many virtual threads, reply waiters park rather than spin
+    static final boolean VIRTUAL_THREADS = Jvm.getBoolean("tcp.client.virtualThreads");
+    // connects hubs reading on an event loop, as connecting blocks. Its threads only exist while connecting.
+    private static final ExecutorService CONNECTOR = newCachedThreadPool(new NamedThreadFactory("TcpChannelHub-connector", true));
     private static final int HEATBEAT_TIMEOUT_PERIOD =
             getInteger("heartbeat.timeout",
                     Jvm.isDebug() ? 120_000 : 15_000);
@@ -93,14 +105,34 @@ public final class TcpChannelHub extends AbstractCloseable {
     }
 
     final long timeoutMs;
+    // caps the number of asyncRequest()s waiting for a reply
+    private final Semaphore asyncRequestPermits = new Semaphore(getInteger("tcp.client.async.maxInFlight", 100_000));
     @NotNull
     private final String name;
     private final int tcpBufferSize;
     private final Wire outWire;
     @NotNull
+    private final CombiningWriter combiningWriter;
+    // the buffers sync replies are read into
+    @NotNull
+    private final ReplyBufferPool replyBufferPool;
+    @NotNull
     private final SocketAddressSupplier socketAddressSupplier;
     private final Set<Long> preventSubscribeUponReconnect = new ConcurrentSkipListSet<>();
     private final ReentrantLock outBytesLock = TraceLock.create();
+    // rather than synchronized, which would pin a virtual thread's carrier while it closes the socket
+    private final ReentrantLock closeSocketLock = new ReentrantLock();
+    // guarded by the outBytesLock
+    private final WriteBackoff writeBackoff = new WriteBackoff();
+    // added to holding the outBytesLock, but read from any thread
+    private final AtomicLong writeBlockedNanos = new AtomicLong();
+    // messages sent while disconnected, and whether sync requests are replayed on reconnect, null if not enabled
+    @Nullable
+    private final DisconnectedQueue disconnectedQueue = DisconnectedQueue.create();
+    // read on the hub's event loop rather than a thread per hub, so hubs sharing an event loop share its thread
+    private final boolean eventLoopReads = Jvm.getBoolean("tcp.client.eventLoopReads");
+    // for requests made from many virtual threads, a thread only holds a reply slot while it has a request in flight
+    private final boolean virtualThreads = Jvm.getBoolean("tcp.client.virtualThreads");
     private final Condition condition = outBytesLock.newCondition();
     @NotNull
     private final AtomicLong transactionID = new AtomicLong(0);
@@ -170,6 +202,8 @@ public final class TcpChannelHub extends AbstractCloseable {
         this.name = name.trim();
         this.timeoutMs = Integer.getInteger("tcp.client.timeout", 10_000);
         this.wireType = wireType;
+        this.combiningWriter = new CombiningWriter(outBytesLock, this::writeGathering, wireType);
+        this.replyBufferPool = new ReplyBufferPool(wireType);
 
         // we are always going to send the header as text wire, the server will
         // respond in the wire define by the wireType field, all subsequent types must be in wireType
@@ -472,7 +506,16 @@ public final class TcpChannelHub extends AbstractCloseable {
     /**
      * closes the existing connections
      */
-    synchronized void closeSocket() {
+    void closeSocket() {
+        closeSocketLock.lock();
+        try {
+            closeSocket0();
+        } finally {
+            closeSocketLock.unlock();
+        }
+    }
+
+    private void closeSocket0() {
 
         @Nullable final ChronicleSocketChannel clientChannel = this.clientChannel;
 
@@ -558,6 +601,10 @@ public final class TcpChannelHub extends AbstractCloseable {
 
         outWire.bytes().releaseLast();
         handShakingWire.bytes().releaseLast();
+        combiningWriter.close();
+        replyBufferPool.close();
+        if (disconnectedQueue != null)
+            disconnectedQueue.release();
     }
 
     /**
@@ -628,11 +675,22 @@ public final class TcpChannelHub extends AbstractCloseable {
             assert wire.startUse();
             @Nullable ChronicleSocketChannel clientChannel = this.clientChannel;
 
+            final boolean recorded = disconnectedQueue != null && !sessionMessage
+                    && tcpSocketConsumer.recordRequest(wire);
+
             // wait for the channel to be non null
             if (clientChannel == null) {
                 if (!reconnectOnFailure) {
                     return;
                 }
+                // send it once reconnected, rather than block
+                if (disconnectedQueue != null && !sessionMessage && disconnectedQueue.offer(wire.bytes())) {
+                    // the queue sends it, rather than the reply slot as well
+                    if (recorded)
+                        tcpSocketConsumer.requestQueued();
+                    wire.clear();
+                    return;
+                }
                 final byte[] bytes = wire.bytes().toByteArray();
                 assert wire.endUse();
                 condition.await(10, TimeUnit.SECONDS);
@@ -671,12 +729,50 @@ public final class TcpChannelHub extends AbstractCloseable {
         }
     }
 
+    /**
+     * the wire returned by {@link #proxyReply(long, long)} is leased from a pool, call this once it has been read to
+     * return it, otherwise it is returned when this thread next makes a request. With {@code tcp.client.virtualThreads}
+     * this also frees the thread's reply slot for another thread, a slot which isn't freed is reclaimed with its thread.
+     */
+    public void releaseReply() {
+        tcpSocketConsumer.releaseReply();
+    }
+
+    /**
+     * @return true if the calling thread holds a reply slot with {@code tcp.client.virtualThreads}
+     */
+    boolean holdsReplySlot() {
+        return tcpSocketConsumer.inFlightReplySlot != null && tcpSocketConsumer.inFlightReplySlot.get() != null;
+    }
+
+    /**
+     * @return the number of reply slots free for another thread with {@code tcp.client.virtualThreads}
+     */
+    int freeReplySlots() {
+        return tcpSocketConsumer.freeReplySlots == null ? 0 : tcpSocketConsumer.freeReplySlots.size();
+    }
+
+    /**
+     * @return true if replies are waiting for their tid to be registered, or to be delivered to a subscription
+     */
+    boolean hasPendingReplies() {
+        return !tcpSocketConsumer.pendingReplies.isEmpty();
+    }
+
+    /**
+     * @return the pool the buffers sync replies are read into are leased from
+     */
+    @NotNull
+    public ReplyBufferPool replyBufferPool() {
+        return replyBufferPool;
+    }
+
     /**
      * blocks for a message with the appropriate {@code tid}
      *
      * @param timeoutTime the amount of time to wait ( in MS ) before a time out exceptions
      * @param tid         the {@code tid} of the message that we are waiting for
-     * @return the wire of the message with the {@code tid}
+     * @return the wire of the message with the {@code tid}, see {@link #releaseReply()}
      */
     public Wire proxyReply(final long timeoutTime, final long tid) throws ConnectionDroppedException, TimeoutException {
         throwExceptionIfClosed();
@@ -695,6 +791,126 @@ public final class TcpChannelHub extends AbstractCloseable {
         }
     }
 
+    /**
+     * sends a request without blocking for its reply, the returned future is completed when the reply with this {@code
+     * tid} arrives, or exceptionally if it doesn't within {@code timeoutMs} or the connection is dropped.
+     * <p>
+     * If the maximum number of requests are already waiting for a reply, this blocks until one completes.
+     * <p>
+     * A request made while disconnected is sent once reconnected with {@code tcp.client.disconnectedQueue.maxBytes},
+     * otherwise it fails.
+     *
+     * @param tid       the {@code tid} the request is written with
+     * @param request   writes the whole request, including its meta data, see {@link #writeCombined(WriteMarshallable)}
+     * @param reply     decodes the reply, which is positioned after its header, this is called on the read thread
+     * @param executor  to complete the future on, or null to complete it on the read thread
+     * @param timeoutMs how long to wait for the reply
+     * @return the decoded reply
+     */
+    @NotNull
+    public <T> CompletableFuture<T> asyncRequest(final long tid,
+                                                 @NotNull final WriteMarshallable request,
+                                                 @NotNull final Function<WireIn, T> reply,
+                                                 @Nullable final Executor executor,
+                                                 final long timeoutMs) {
+        throwExceptionIfClosed();
+
+        final CompletableFuture<T> rejected = new CompletableFuture<>();
+        try {
+            if (!asyncRequestPermits.tryAcquire(timeoutMs, MILLISECONDS)) {
+                rejected.completeExceptionally(new TimeoutException("too many requests waiting for a reply"));
+                return rejected;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+
+        @NotNull final AsyncRequest<T> asyncRequest = new AsyncRequest<>(tid, reply, executor, () -> {
+            // a late reply is then treated as one for an unknown tid
+            tcpSocketConsumer.unsubscribe(tid);
+            asyncRequestPermits.release();
+        });
+        asyncRequest.startTimeout(timeoutMs);
+        try {
+            // only the write takes the outBytesLock
+            tcpSocketConsumer.registerAsyncRequest(asyncRequest);
+            writeCombined(request);
+        } catch (Throwable t) {
+            asyncRequest.completeExceptionally(t);
+        }
+        return asyncRequest;
+    }
+
+    /**
+     * sends a message without holding the {@link #outBytesLock()} while it is encoded. Messages sent concurrently
+     * are written to the socket together, by whichever of the calling threads obtains the lock.
+     * <p>
+     * Unlike {@link #writeSocket(WireOut, boolean, boolean)} this doesn't wait for a dropped connection to be
+     * re-established. With {@code tcp.client.disconnectedQueue.maxBytes} the message is queued and sent once it has
+     * been, unless the queue is full.
+     *
+     * @param message writes the whole message, including its meta data, see {@link #writeMetaData(long, Wire, String,
+     *                long)}
+     * @throws ConnectionDroppedException if the message could not be written
+     */
+    public void writeCombined(@NotNull final WriteMarshallable message) throws ConnectionDroppedException {
+        throwExceptionIfClosed();
+
+        combiningWriter.write(message);
+    }
+
+    /**
+     * writes all the buffers to the socket, called by the {@link CombiningWriter} holding the outBytesLock
+     */
+    private void writeGathering(@NotNull final ByteBuffer[] buffers) throws IOException {
+        @Nullable final ChronicleSocketChannel clientChannel = this.clientChannel;
+        if (clientChannel == null) {
+            // sent once reconnected, as writeSocket() does
+            if (disconnectedQueue != null && disconnectedQueue.offer(buffers))
+                return;
+            throw new ConnectionDroppedException("Connection Dropped");
+        }
+
+        long remaining = 0;
+        for (@NotNull ByteBuffer buffer : buffers)
+            remaining += buffer.remaining();
+
+        long start = System.currentTimeMillis();
+        try {
+            while (remaining > 0) {
+                if (clientChannel != this.clientChannel)
+                    throw new ConnectionDroppedException("Connection has Changed");
+
+                final long len = clientChannel.write(buffers);
+                if (len < 0)
+                    throw new IORuntimeException("Disconnection to server=" +
+                            socketAddressSupplier + ", name=" + name);
+
+                if (len > 0) {
+                    remaining -= len;
+                    writeBackoff.reset();
+                    start = System.currentTimeMillis();
+                    if (tcpSocketConsumer != null)
+                        tcpSocketConsumer.lastTimeMessageReceivedOrSent = start;
+
+                } else {
+                    final long writeTime = System.currentTimeMillis() - start;
+                    if (writeTime > TimeUnit.MINUTES.toMillis(15)) {
+                        closeSocket();
+                        throw new IORuntimeException("Took " + writeTime + " ms to perform a write, remaining= " + remaining);
+                    }
+                    // give the read thread a chance if the read buffer is full
+                    writeBlocked();
+                }
+            }
+        } catch (IOException e) {
+            closeSocket();
+            throw e;
+        }
+    }
+
     /**
      * writes the bytes to the socket, onto the clientChannel provided
      *
@@ -751,6 +967,7 @@ public final class TcpChannelHub extends AbstractCloseable {
 
                     // reset the timer if we wrote something.
                     if (prevRemaining != outBuffer.remaining()) {
+                        writeBackoff.reset();
                         start = System.currentTimeMillis();
                         isOutBufferFull = false;
                         //  if (Jvm.isDebug() && outBuffer.remaining() == 0)
@@ -780,7 +997,7 @@ public final class TcpChannelHub extends AbstractCloseable {
 
                         // its important to yield, if the read buffer gets full
                         // we wont be able to write, lets give some time to the read thread !
-                        Thread.yield();
+                        writeBlocked();
                     }
                 }
             } catch (IOException e) {
@@ -795,6 +1012,21 @@ public final class TcpChannelHub extends AbstractCloseable {
         }
     }
 
+    /**
+     * waits for the socket's send buffer to drain. The outBytesLock is still held, as the message has been partly
+     * written, but other callers of writeCombined() can still queue their messages.
+     */
+    private void writeBlocked() {
+        writeBlockedNanos.addAndGet(writeBackoff.pause());
+    }
+
+    /**
+     * @return the total time writers have waited for the socket's send buffer to drain in nanoseconds
+     */
+    public long writeBlockedNanos() {
+        return writeBlockedNanos.get();
+    }
+
     private void writeTimeout(@Nullable ByteBuffer outBuffer, long writeTime) {
         for (@NotNull Map.Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
             Thread thread = entry.getKey();
@@ -916,6 +1148,16 @@ public final class TcpChannelHub extends AbstractCloseable {
         }
         assert outBytesLock().isHeldByCurrentThread();
 
+        writeMetaData(tid, wire, csp, cid);
+    }
+
+    /**
+     * writes the meta data for a request, to a wire other than the {@link #outWire()}
+     */
+    public static void writeMetaData(final long tid,
+                                     @NotNull final Wire wire,
+                                     @Nullable final String csp,
+                                     final long cid) {
         try (DocumentContext dc = wire.writingDocument(true)) {
             if (cid == 0)
                 dc.wire().writeEventName(CoreFields.csp).text(csp);
@@ -1076,21 +1318,32 @@ public final class TcpChannelHub extends AbstractCloseable {
      */
     private final class TcpSocketConsumer implements EventHandler {
         private static final int TIME_OUT_MS = 3_000;
+        private static final long SYNC_RECHECK_NS = TimeUnit.MILLISECONDS.toNanos(10);
+        @NotNull
+        private final ConcurrentLongObjectMap<Object> map = new ConcurrentLongObjectMap<>(32);
+        // replies which arrived before their tid was registered
         @NotNull
-        private final TLongObjectMap<Object> map;
-        //private final TLongObjectMap<Object> map = new TLongObjectHashMap<>(16);
-        //private final Map<Long, Object> map = new ConcurrentHashMap<>();
+        private final PendingReplyStash pendingReplies = new PendingReplyStash(map);
+        @NotNull
+        private final PendingReplyStash.ReplyConsumer pendingReplyConsumer = (tid, o, header, body) ->
+                onReply(tid, o, header, body, wireType.apply(body));
 
         private final TLongObjectMap<Object> omap = hasAssert ? TCollections.synchronizedMap(new TLongObjectHashMap<>(8)) : null;
         @NotNull
         private final ExecutorService service;
-        @NotNull
-        private final ThreadLocal<Wire> syncInWireThreadLocal = CleaningThreadLocal.withCleanup(this::createWire, w -> releaseWire(w));
+        @Nullable
+        private final ThreadLocal<ReplySlot> syncReplySlotThreadLocal = virtualThreads ? null : CleaningThreadLocal.withCleanup(() -> new ReplySlot(replyBufferPool), ReplySlot::release);
+        // with virtualThreads, the slot of each thread with a request in flight, and the slots not in use
+        @Nullable
+        private final ThreadLocal<ReplySlot> inFlightReplySlot = virtualThreads ? new ThreadLocal<>() : null;
+        @Nullable
+        private final Queue<ReplySlot> freeReplySlots = virtualThreads ? new ConcurrentLinkedQueue<>() : null;
+        // rather than synchronized, so a virtual thread subscribing doesn't pin its carrier
+        private final ReentrantLock clientChannelLock = new ReentrantLock();
 
         long lastheartbeatSentTime = 0;
         volatile long start = Long.MAX_VALUE;
         private long tid;
-        private final Bytes serverHeartBeatHandler = Bytes.elasticByteBuffer();
         private final TidReader tidReader = new TidReader();
 
         private volatile long lastTimeMessageReceivedOrSent = System.currentTimeMillis();
@@ -1106,11 +1359,6 @@ public final class TcpChannelHub extends AbstractCloseable {
 
             service = newCachedThreadPool(
                     new NamedThreadFactory(threadName(), true));
-
-            final TLongObjectHashMap<Object> longMap = new TLongObjectHashMap<>(32);
-            // Prevent excessive array creation upon removals
-            longMap.setAutoCompactionFactor(0);
-            map = TCollections.synchronizedMap(longMap);
             start();
         }
 
@@ -1126,26 +1374,153 @@ public final class TcpChannelHub extends AbstractCloseable {
                     if (!(v instanceof AsyncTemporarySubscription))
                         ((AsyncSubscription) v).applySubscribe();
                 }
-                return true;
             });
 
+            if (disconnectedQueue != null)
+                replayAndFlush(disconnectedQueue);
         }
 
-        @SuppressWarnings("SynchronizationOnLocalVariableOrMethodParameter")
-        void onConnectionClosed() {
+        /**
+         * sends the requests still waiting for a reply again, under their original tids, followed by the messages
+         * sent while disconnected
+         */
+        private void replayAndFlush(@NotNull final DisconnectedQueue disconnectedQueue) {
+            final Set<ReplySlot> slots = Collections.newSetFromMap(new IdentityHashMap<>());
             map.forEachValue(v -> {
-                if (v instanceof Bytes)
-                    synchronized (v) {
-                        v.notifyAll();
+                if (v instanceof ReplySlot && ((ReplySlot) v).isWaiting())
+                    slots.add((ReplySlot) v);
+            });
+            if (slots.isEmpty() && disconnectedQueue.isEmpty())
+                return;
+
+            final List<ReplySlot> inFlight = new ArrayList<>(slots);
+            // tids increase, so this is the order they were sent in
+            inFlight.sort(Comparator.comparingLong(ReplySlot::tid));
+
+            final Bytes<?> bytes = outWire.bytes();
+            for (@NotNull ReplySlot slot : inFlight)
+                slot.copyRequestTo(bytes);
+            disconnectedQueue.copyTo(bytes);
+            try {
+                writeSocket1(outWire, clientChannel);
+            } catch (IOException e) {
+                throw new IORuntimeException(e);
+            }
+            disconnectedQueue.clear();
+            for (@NotNull ReplySlot slot : inFlight)
+                slot.requestSent();
+        }
+
+        /**
+         * records a message the calling thread has sent, in case it is a request it will wait for the reply to. With
+         * {@code tcp.client.virtualThreads} only a request which a reply slot will wait for is recorded, as a thread
+         * sending one-way messages never calls {@link #releaseReply()} to free the slot.
+         *
+         * @return true if it was recorded
+         */
+        boolean recordRequest(@NotNull final WireOut wire) {
+            if (inFlightReplySlot != null && !expectsReply(wire))
+                return false;
+            replySlot().recordRequest(wire.bytes());
+            return true;
+        }
+
+        /**
+         * @return true unless the message is known not to expect a sync reply, as it has no tid, as async messages
+         * don't, or its tid is a subscription's
+         */
+        private boolean expectsReply(@NotNull final WireOut wireOut) {
+            if (!(wireOut instanceof WireIn))
+                return true;
+            final WireIn wire = (WireIn) wireOut;
+            final long position = wire.bytes().readPosition();
+            try (DocumentContext dc = wire.readingDocument()) {
+                if (!dc.isPresent() || !dc.isMetaData())
+                    return false;
+                final StringBuilder eventName = Wires.acquireStringBuilder();
+                while (dc.wire().hasMore()) {
+                    final ValueIn valueIn = dc.wire().readEventName(eventName);
+                    if (CoreFields.tid.contentEquals(eventName)) {
+                        final long tid = valueIn.int64();
+                        return tid != 0 && !(map.get(tid) instanceof AsyncSubscription);
                     }
+                    valueIn.skipValue();
+                }
+                return false;
+            } catch (RuntimeException e) {
+                // not written as documents, so it may be a request
+                return true;
+            } finally {
+                wire.bytes().readPosition(position);
+            }
+        }
+
+        /**
+         * the message the calling thread last recorded was queued, so it is only sent from the queue on reconnect
+         */
+        void requestQueued() {
+            replySlot().requestQueued();
+        }
+
+        /**
+         * @return the calling thread's reply slot
+         */
+        @NotNull
+        private ReplySlot replySlot() {
+            if (inFlightReplySlot == null)
+                return syncReplySlotThreadLocal.get();
+
+            ReplySlot slot = inFlightReplySlot.get();
+            if (slot == null) {
+                slot = freeReplySlots.poll();
+                if (slot == null)
+                    slot = new ReplySlot(replyBufferPool);
+                inFlightReplySlot.set(slot);
+            }
+            return slot;
+        }
+
+        void releaseReply() {
+            if (inFlightReplySlot == null) {
+                syncReplySlotThreadLocal.get().releaseReply();
+                return;
+            }
+
+            final ReplySlot slot = inFlightReplySlot.get();
+            if (slot == null)
+                return;
+            inFlightReplySlot.remove();
+            slot.releaseReply();
+            // only recycled once its tid is unmapped, so a late reply isn't routed to its next request
+            if (slot.tid() != 0)
+                map.remove(slot.tid(), slot);
+            freeReplySlots.add(slot);
+        }
+
+        /**
+         * with {@code tcp.client.virtualThreads} there can be a slot per thread, so the request isn't kept once it has
+         * been answered or given up on
+         */
+        private void releaseRequest(@NotNull final ReplySlot slot) {
+            if (!slot.hasRequest())
+                return;
+            final ReentrantLock lock = outBytesLock();
+            lock.lock();
+            try {
+                slot.releaseRequest();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void onConnectionClosed() {
+            map.forEachValue(v -> {
                 if (v instanceof AsyncSubscription) {
                     ((AsyncSubscription) v).onClose();
-                } else if (v instanceof Bytes) {
-                    synchronized (v) {
-                        v.notifyAll();
-                    }
+                } else if (v instanceof ReplySlot && disconnectedQueue == null) {
+                    // otherwise the request is replayed on reconnect
+                    ((ReplySlot) v).close();
                 }
-                return true;
             });
         }
 
@@ -1165,45 +1540,44 @@ public final class TcpChannelHub extends AbstractCloseable {
                 throws TimeoutException, ConnectionDroppedException {
 
             final long beginMs = System.currentTimeMillis();
-            final Wire wire = syncInWireThreadLocal.get();
-            IOTools.unmonitor(wire.bytes());
-            wire.clear();
-
-            @NotNull final Bytes<?> bytes = wire.bytes();
-            ((ByteBuffer) bytes.underlyingObject()).clear();
+            final ReplySlot slot = replySlot();
 
-            //noinspection SynchronizationOnLocalVariableOrMethodParameter
-            synchronized (bytes) {
-
-                if (DEBUG_ENABLED)
-                    Jvm.debug().on(TcpChannelHub.class, "tid=" + tid + " of client request");
-
-                bytes.clear();
-
-                registerSubscribe(tid, bytes);
+            if (DEBUG_ENABLED)
+                Jvm.debug().on(TcpChannelHub.class, "tid=" + tid + " of client request");
 
-                final long endMs = beginMs + timeoutTimeMs;
-                try {
-                    do {
-                        final long delayMs = endMs - System.currentTimeMillis();
-                        if (delayMs <= 0)
-                            break;
+            // also returns the last reply to the pool
+            slot.reset(tid);
 
-                        bytes.wait(delayMs);
+            registerSubscribe(tid, slot);
 
-                        if (clientChannel == null)
-                            throw new ConnectionDroppedException("Connection Closed : the connection to the " +
-                                    "server has been dropped.");
+            final long endNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutTimeMs);
+            try {
+                // wake up periodically to notice the hub shutting down
+                while (!slot.await(Math.min(endNs, System.nanoTime() + SYNC_RECHECK_NS))) {
+                    if (clientChannel == null && disconnectedQueue == null)
+                        throw new ConnectionDroppedException("Connection Closed : the connection to the " +
+                                "server has been dropped.");
+                    if (isShutdown || System.nanoTime() - endNs >= 0)
+                        break;
+                }
+                if (!slot.isReady() && clientChannel == null && disconnectedQueue == null)
+                    throw new ConnectionDroppedException("Connection Closed : the connection to the " +
+                            "server has been dropped.");
 
-                    } while (bytes.readLimit() == 0 && !isShutdown);
+            } catch (InterruptedException ie) {
+                @NotNull final TimeoutException te = new TimeoutException();
+                te.initCause(ie);
+                throw te;
 
-                } catch (InterruptedException ie) {
-                    @NotNull final TimeoutException te = new TimeoutException();
-                    te.initCause(ie);
-                    throw te;
-                }
+            } finally {
+                // a request which has been given up on isn't replayed, and a late reply is dropped
+                if (slot.close())
+                    map.remove(tid, slot);
+                if (virtualThreads)
+                    releaseRequest(slot);
             }
 
+            final Wire wire = slot.reply();
             logToStandardOutMessageReceived(wire);
 
             if (System.currentTimeMillis() - beginMs >= timeoutTimeMs) {
@@ -1222,12 +1596,24 @@ public final class TcpChannelHub extends AbstractCloseable {
 
             final Object prev = map.put(tid, bytes);
             assert prev == null;
+
+            if (!pendingReplies.isEmpty())
+                pendingReplies.claim(tid, bytes, pendingReplyConsumer);
+        }
+
+        /**
+         * unlike {@link #subscribe(AsyncSubscription, boolean)} this doesn't take the outBytesLock, as an async request
+         * writes nothing when it subscribes, and isn't subscribed again on reconnect
+         */
+        void registerAsyncRequest(@NotNull final AsyncRequest<?> asyncRequest) {
+            registerSubscribe(asyncRequest.tid(), asyncRequest);
         }
 
         void subscribe(@NotNull final AsyncSubscription asyncSubscription, boolean tryLock) {
             // we add a synchronize to ensure that the asyncSubscription is added before map before
             // the clientChannel is assigned
-            synchronized (this) {
+            clientChannelLock.lock();
+            try {
                 if (clientChannel == null) {
 
                     // this check ensure that a put does not occur while currently re-subscribing
@@ -1241,6 +1627,8 @@ public final class TcpChannelHub extends AbstractCloseable {
                     // not currently connected
                     return;
                 }
+            } finally {
+                clientChannelLock.unlock();
             }
 
             // we have lock here to prevent a race with the resubscribe upon a reconnection
@@ -1292,6 +1680,10 @@ public final class TcpChannelHub extends AbstractCloseable {
 
             assert shutdownHere == null;
             assert !isShutdown;
+            if (eventLoopReads) {
+                eventLoop.addHandler(new EventLoopReader());
+                return;
+            }
             service.submit(() -> {
                 readThread = Thread.currentThread();
                 try {
@@ -1348,57 +1740,37 @@ public final class TcpChannelHub extends AbstractCloseable {
         }
 
         private void running() {
-            final Wire inWire = wireType.apply(elasticByteBuffer());
+            // the bytes read from the socket which have not been processed, between its read position and read limit
+            final Bytes<ByteBuffer> in = elasticByteBuffer(READ_AHEAD_SIZE);
+            final Wire inWire = wireType.apply(in);
+            @Nullable ChronicleSocketChannel channel = null;
 
             try {
-                assert inWire != null;
-                assert inWire.startUse();
-
                 while (!isShuttingdown()) {
 
                     checkConnectionState();
 
                     try {
-                        // if we have processed all the bytes that we have read in
-                        @NotNull final Bytes<?> bytes = inWire.bytes();
-
-                        // the number bytes ( still required  ) to read the size
-                        blockingRead(inWire, SIZE_OF_SIZE);
+                        // anything left over was read from a connection which has since been dropped
+                        if (channel != clientChannel) {
+                            channel = clientChannel;
+                            in.clear();
+                            tid = -1;
+                        }
 
-                        final int header = bytes.readVolatileInt(0);
-                        final long messageSize = size(header);
+                        readSome(in);
 
-                        // read the data
+                        // process every complete message read, leaving any partial message for the next read
                         start = System.currentTimeMillis();
-                        if (Wires.isData(header)) {
-                            assert messageSize < Integer.MAX_VALUE;
-
-                            final boolean clearTid = processData(tid, Wires.isReady(header), header,
-                                    (int) messageSize, inWire);
-
-                            long timeTaken = System.currentTimeMillis() - start;
-                            start = Long.MAX_VALUE;
-                            if (timeTaken > 100)
-                                LOG.info("Processing data=" + timeTaken + "ms");
-
-                            if (clearTid)
-                                tid = -1;
+                        processFrames(in, inWire);
+                        compact(in);
+                        // so replies claimed by subscriptions are delivered without waiting for another reply
+                        pendingReplies.deliverClaimed(pendingReplyConsumer);
 
-                        } else {
-                            // read  meta data - get the tid
-                            blockingRead(inWire, messageSize);
-                            logToStandardOutMessageReceived(inWire);
-                            // ensure the tid is reset
-                            this.tid = -1;
-                            inWire.readDocument(tidReader, null);
-
-                            //inWire.readDocument(this::tidReader, null);
-
-/*                            try (DocumentContext dc = inWire.readingDocument()) {
-                                this.tid = CoreFields.tid(dc.wire());
-                            }*/
+                        long timeTaken = System.currentTimeMillis() - start;
+                        if (timeTaken > 100)
+                            LOG.info("Processing data=" + timeTaken + "ms");
 
-                        }
                     } catch (Exception e) {
                         start = Long.MAX_VALUE;
 
@@ -1406,6 +1778,7 @@ public final class TcpChannelHub extends AbstractCloseable {
                             Jvm.debug().on(TcpChannelHub.class, e);
 
                         tid = -1;
+                        in.clear();
                         if (isShuttingdown()) {
                             break;
 
@@ -1427,14 +1800,14 @@ public final class TcpChannelHub extends AbstractCloseable {
                         }
                     } finally {
                         start = Long.MAX_VALUE;
-                        clear(inWire);
                     }
                 }
             } catch (Throwable e) {
                 if (!isShuttingdown())
                     Jvm.warn().on(TcpChannelHub.class, e);
             } finally {
-                inWire.bytes().releaseLast();
+                in.releaseLast();
+                pendingReplies.clear();
                 closeSocket();
             }
         }
@@ -1459,134 +1832,128 @@ public final class TcpChannelHub extends AbstractCloseable {
         }
 
         /**
-         * Process incoming Data.
+         * dispatches every complete message in place, from the read position of {@code in}
          *
-         * @param tid         the transaction id of the message
-         * @param isReady     if true, this will be the last message for this tid
-         * @param header      message size in header form
-         * @param messageSize the sizeof the wire message
-         * @param inWire      the location the data will be written to
-         * @return {@code true} if the tid should not be used again
-         * @throws IOException if there is socket issue
+         * @return true if any complete messages were read
          */
-        private boolean processData(final long tid,
-                                    final boolean isReady,
-                                    final int header,
-                                    final int messageSize,
-                                    @NotNull Wire inWire) throws IOException {
-            assert tid != -1;
-            boolean isLastMessageForThisTid = false;
-            long startTime = 0;
-            @Nullable Object o = null;
+        private boolean processFrames(@NotNull final Bytes<ByteBuffer> in, @NotNull final Wire inWire) {
+            boolean busy = false;
+            while (in.readRemaining() >= SIZE_OF_SIZE) {
+                final long position = in.readPosition();
+                final int header = in.readInt(position);
+                final long end = position + SIZE_OF_SIZE + size(header);
+                final long readLimit = in.readLimit();
+                if (end > readLimit) {
+                    // make room for the rest of the message
+                    in.ensureCapacity(end);
+                    break;
+                }
+                in.readLimit(end);
+                try {
+                    onFrame(in, inWire, position, header);
+                } finally {
+                    in.readLimit(readLimit);
+                    in.readPosition(end);
+                }
+                busy = true;
+            }
+            return busy;
+        }
 
-            // tid == 0 for system messages
+        /**
+         * @param in       limited to the message, which starts at position
+         * @param position of the header of the message
+         */
+        private void onFrame(@NotNull final Bytes<ByteBuffer> in,
+                             @NotNull final Wire inWire,
+                             final long position,
+                             final int header) {
+            if (!Wires.isData(header)) {
+                // read  meta data - get the tid
+                in.readPosition(position);
+                logToStandardOutMessageReceived(inWire);
+                tid = -1;
+                inWire.readDocument(tidReader, null);
+                return;
+            }
             if (tid == 0) {
                 // heartbeat message sent from the server
-                processServerSystemMessage(header, messageSize);
-                return false;
-            } else {
-                @Nullable final ChronicleSocketChannel c = clientChannel;
-
-                // this can occur if we received a shutdown
-                if (c == null)
-                    return false;
-
-                // this loop if to handle the rare case where we receive the tid before its been registered by this class
-                for (; !isShuttingdown() && c.isOpen(); ) {
-
-                    o = map.get(tid);
-
-                    // we only remove the subscription so they are AsyncTemporarySubscription, as the AsyncSubscription
-                    // can not be remove from the map as they are required when you resubscribe when we loose connectivity
-                    if (o == null) {
-                        if (hasAssert) {
-                            o = omap.get(tid);
-                            if (o != null) {
-                                blockingRead(inWire, messageSize);
-
-                                logToStandardOutMessageReceivedInERROR(inWire);
-                                throw new AssertionError("Found tid=" + tid + " in the old map.");
-                            }
-                        }
-                    } else {
-
-                        if (isReady && (o instanceof Bytes || o instanceof AsyncTemporarySubscription)) {
-
-                            if (hasAssert) {
-                                omap.put(tid, map.remove(tid));
-                            } else {
-                                map.remove(tid);
-                            }
-
-                            isLastMessageForThisTid = true;
-                        }
-                        break;
-                    }
-
-                    // this can occur if the server returns the response before we have started to
-                    // listen to it
-
-                    if (startTime == 0)
-                        startTime = System.currentTimeMillis();
-                    else
-                        Jvm.pause(1);
-
-                    if (System.currentTimeMillis() - startTime > TIME_OUT_MS) {
-
-                        blockingRead(inWire, messageSize);
-                        logToStandardOutMessageReceived(inWire);
+                in.readPosition(position);
+                onServerSystemMessage(inWire);
+                return;
+            }
+            if (tid == -1)
+                return;
 
-                        if (DEBUG_ENABLED)
-                            Jvm.debug().on(TcpChannelHub.class, "unable to respond to tid=" + tid + ", given that we have " +
-                                    "received a message we a tid which is unknown, this can occur " +
-                                    "sometime if " +
-                                    "the subscription has just become unregistered ( an the server " +
-                                    "has not yet processed the unregister event ) ");
-                        return isLastMessageForThisTid;
-                    }
+            in.readPosition(position + SIZE_OF_SIZE);
+            logToStandardOutMessageReceived(inWire);
+            @Nullable Object o = map.get(tid);
+            // this can occur if the server returns the response before we have started to listen to it, rather
+            // than wait for the tid to be registered the reply is stashed so it can be handed over when it is
+            if (o == null || !pendingReplies.isEmpty()) {
+                if (o == null && hasAssert && omap.get(tid) != null) {
+                    logToStandardOutMessageReceivedInERROR(inWire);
+                    throw new AssertionError("Found tid=" + tid + " in the old map.");
                 }
-
-                // this can occur if we received a shutdown
-                if (o == null)
-                    return isLastMessageForThisTid;
-
+                o = pendingReplies.stashOrGet(tid, header, in, pendingReplyConsumer);
             }
+            if (o != null && onReply(tid, o, header, in, inWire))
+                tid = -1;
+        }
 
-            // for async
-            if (o instanceof AsyncSubscription) {
-
-                blockingRead(inWire, messageSize);
-                logToStandardOutMessageReceived(inWire);
-                @NotNull final AsyncSubscription asyncSubscription = (AsyncSubscription) o;
-
-                try {
-                    asyncSubscription.onConsumer(inWire);
+        /**
+         * moves a partial message to the start of {@code in}, so only it is copied
+         */
+        private void compact(@NotNull final Bytes<ByteBuffer> in) {
+            if (in.readPosition() == 0)
+                return;
+            @NotNull final ByteBuffer buffer = in.underlyingObject();
+            buffer.position((int) in.readPosition());
+            buffer.limit((int) in.readLimit());
+            buffer.compact();
+            in.readPosition(0);
+            in.readLimit(buffer.position());
+        }
 
-                } catch (Exception e) {
-                    Jvm.warn().on(TcpChannelHub.class, "Removing " + tid + " " + o, e);
-                    if (hasAssert)
-                        omap.remove(tid);
+        /**
+         * hands over a reply which has already been read, either by the read thread or from the pending replies
+         *
+         * @param o    what the tid is registered to
+         * @param body the reply, positioned after its header, which is just before it
+         * @param wire to read the body with
+         * @return {@code true} if the tid should not be used again
+         */
+        private boolean onReply(final long tid,
+                                @NotNull final Object o,
+                                final int header,
+                                @NotNull final Bytes<?> body,
+                                @NotNull final Wire wire) {
+            boolean isLastMessageForThisTid = false;
+            if (Wires.isReady(header) && (o instanceof ReplySlot || o instanceof AsyncTemporarySubscription)) {
+                if (hasAssert) {
+                    final Object removed = map.remove(tid);
+                    if (removed != null)
+                        omap.put(tid, removed);
+                } else {
+                    map.remove(tid);
                 }
+                isLastMessageForThisTid = true;
             }
 
-            // for sync
-            if (o instanceof Bytes) {
-                @Nullable final Bytes bytes = (Bytes) o;
-                // for sync
-                //noinspection SynchronizationOnLocalVariableOrMethodParameter
-                synchronized (bytes) {
-                    bytes.clear();
-                    bytes.ensureCapacity(SIZE_OF_SIZE + messageSize);
-                    @Nullable final ByteBuffer byteBuffer = (ByteBuffer) bytes.underlyingObject();
-                    byteBuffer.clear();
-                    // we have to first write the header back to the bytes so that is can be
-                    // viewed as a document
-                    bytes.writeInt(0, header);
-                    byteBuffer.position(SIZE_OF_SIZE);
-                    byteBuffer.limit(SIZE_OF_SIZE + messageSize);
-                    readBuffer(byteBuffer);
-                    bytes.readLimit(byteBuffer.position());
-                    bytes.notifyAll();
+            if (o instanceof AsyncSubscription) {
+                // subscriptions are passed the message at its header
+                body.readPosition(body.readPosition() - SIZE_OF_SIZE);
+                onConsumer(tid, (AsyncSubscription) o, wire);
+
+            } else if (o instanceof ReplySlot) {
+                @NotNull final ReplySlot slot = (ReplySlot) o;
+                if (slot.tid() == tid) {
+                    final Wire reply = slot.acquireReply(SIZE_OF_SIZE + body.readRemaining());
+                    @NotNull final Bytes<?> bytes = reply.bytes();
+                    // the header is written back so the reply can be viewed as a document
+                    bytes.writeInt(header);
+                    bytes.write(body, body.readPosition(), body.readRemaining());
+                    slot.complete(tid, reply);
                 }
                 if (hasAssert)
                     omap.remove(tid);
@@ -1594,32 +1961,22 @@ public final class TcpChannelHub extends AbstractCloseable {
             return isLastMessageForThisTid;
         }
 
-        /**
-         * process system messages which originate from the server
-         *
-         * @param header      a value representing the type of message
-         * @param messageSize the size of the message
-         * @throws IOException if a buffer cannot be read
-         */
-        private void processServerSystemMessage(final int header, final int messageSize) throws IOException {
-
-            serverHeartBeatHandler.clear();
-            final Bytes bytes = serverHeartBeatHandler;
-
-            bytes.clear();
-            @NotNull final ByteBuffer byteBuffer = (ByteBuffer) bytes.underlyingObject();
-            byteBuffer.clear();
-            // we have to first write the header back to the bytes so that is can be
-            // viewed as a document
-            bytes.writeInt(0, header);
-            byteBuffer.position(SIZE_OF_SIZE);
-            byteBuffer.limit(SIZE_OF_SIZE + messageSize);
-            readBuffer(byteBuffer);
+        private void onConsumer(final long tid, @NotNull final AsyncSubscription asyncSubscription, @NotNull final WireIn wire) {
+            try {
+                asyncSubscription.onConsumer(wire);
 
-            bytes.readLimit(byteBuffer.position());
+            } catch (Exception e) {
+                Jvm.warn().on(TcpChannelHub.class, "Removing " + tid + " " + asyncSubscription, e);
+                if (hasAssert)
+                    omap.remove(tid);
+            }
+        }
 
+        /**
+         * @param inWire positioned at the header of the message
+         */
+        private void onServerSystemMessage(@NotNull final Wire inWire) {
             final StringBuilder eventName = Wires.acquireStringBuilder();
-            final Wire inWire = TcpChannelHub.this.wireType.apply(bytes);
             if (YamlLogging.showHeartBeats())
                 logToStandardOutMessageReceived(inWire);
             inWire.readDocument(null, d -> {
@@ -1634,32 +1991,30 @@ public final class TcpChannelHub extends AbstractCloseable {
         }
 
         /**
-         * blocks indefinitely until the number of expected bytes is received
+         * blocks until some bytes are read from the socket, reading as much as there is room for after the read limit
          *
-         * @param wire          the wire that the data will be written into, this wire must contain an underlying ByteBuffer
-         * @param numberOfBytes the size of the data to read
+         * @param in the bytes read are appended to
          * @throws IOException if anything bad happens to the socket connection
          */
-        private void blockingRead(@NotNull final WireIn wire, final long numberOfBytes) throws IOException {
-
-            @NotNull final Bytes<?> bytes = wire.bytes();
-            bytes.ensureCapacity(bytes.writePosition() + numberOfBytes);
-
-            @NotNull final ByteBuffer buffer = (ByteBuffer) bytes.underlyingObject();
-            final int start = (int) bytes.writePosition();
-            //noinspection ConstantConditions
-            buffer.position(start);
-
-            buffer.limit((int) (start + numberOfBytes));
-            readBuffer(buffer);
-            bytes.readLimit(buffer.position());
+        private void readSome(@NotNull final Bytes<ByteBuffer> in) throws IOException {
+            in.ensureCapacity(in.readLimit() + READ_AHEAD_SIZE);
+            @NotNull final ByteBuffer buffer = in.underlyingObject();
+            buffer.limit(buffer.capacity());
+            buffer.position((int) in.readLimit());
+            try {
+                readBuffer(buffer);
+            } finally {
+                in.readLimit(buffer.position());
+            }
         }
 
+        /**
+         * blocks until at least one byte is read into the buffer
+         */
         private void readBuffer(@NotNull final ByteBuffer buffer) throws IOException {
 
-            //  long start = System.currentTimeMillis();
             boolean emptyRead = true;
-            while (buffer.remaining() > 0) {
+            while (emptyRead) {
                 @Nullable final ChronicleSocketChannel clientChannel = TcpChannelHub.this.clientChannel;
                 if (clientChannel == null)
                     throw new IOException("Disconnection to server=" + socketAddressSupplier +
@@ -1693,11 +2048,7 @@ public final class TcpChannelHub extends AbstractCloseable {
                                 "last message=" + millisecondsSinceLastMessageReceived + "ms " +
                                 "dropping connection to " + socketAddressSupplier);
                     }
-                    if (emptyRead)
-                        start = Long.MAX_VALUE;
                     pauser.pause();
-                    if (start == Long.MAX_VALUE)
-                        start = System.currentTimeMillis();
 
                 } else {
                     throw new ConnectionDroppedException(name + " is shutdown, was connected to "
@@ -1771,7 +2122,8 @@ public final class TcpChannelHub extends AbstractCloseable {
                     }
                 }, true);
                 // Update the thread name if connected or re-connected
-                readThread.setName(threadName());
+                if (readThread != null)
+                    readThread.setName(threadName());
             } catch (IllegalStateException e) {
                 if (!TcpChannelHub.this.isClosed())
                     throw e;
@@ -1794,8 +2146,15 @@ public final class TcpChannelHub extends AbstractCloseable {
                 shutdownHere = new StackTrace(Thread.currentThread() + " Shutdown here");
 
             Threads.shutdown(service);
+            // there is no read thread to close it
+            if (eventLoopReads)
+                closeSocket();
 
-            serverHeartBeatHandler.releaseLast();
+            if (freeReplySlots != null) {
+                ReplySlot slot;
+                while ((slot = freeReplySlots.poll()) != null)
+                    slot.release();
+            }
 
             isShutdown = true;
         }
@@ -1874,10 +2233,13 @@ public final class TcpChannelHub extends AbstractCloseable {
                         // resets the heartbeat timer
                         onMessageReceived();
 
-                        synchronized (this) {
-                            LOG.info("connected to " + socketChannel);
+                        clientChannelLock.lock();
+                        try {
                             clientChannel = socketChannel;
+                        } finally {
+                            clientChannelLock.unlock();
                         }
+                        LOG.info("connected to " + socketChannel);
 
                         // the hand-shaking is assigned before setting the clientChannel, so that it can
                         // be assured to go first
@@ -1915,17 +2277,11 @@ public final class TcpChannelHub extends AbstractCloseable {
             if (hasAssert)
                 omap.clear();
 
-            // Make sure we are alone
-            synchronized (map) {
-                final Set<Long> keys = new HashSet<>();
-                map.keySet().forEach(keys::add);
-
-                keys.forEach(k -> {
-                    final Object o = map.get(k);
-                    if (o instanceof Bytes || o instanceof AsyncTemporarySubscription)
-                        map.remove(k);
-                });
-            }
+            // requests waiting for a reply are kept if they are to be replayed, including async requests made since
+            // the connection was dropped
+            map.removeIf(o -> (o instanceof ReplySlot && (disconnectedQueue == null || !((ReplySlot) o).isWaiting()))
+                    || (o instanceof AsyncTemporarySubscription
+                    && (disconnectedQueue == null || !(o instanceof AsyncRequest) || ((AsyncRequest<?>) o).isDone())));
         }
 
         void prepareToShutdown() {
@@ -1946,10 +2302,128 @@ public final class TcpChannelHub extends AbstractCloseable {
             this.tid = CoreFields.tid(w);
         }
 
-        private Wire createWire() {
-            final Wire wire = wireType.apply(elasticByteBuffer());
-            assert wire.startUse();
-            return wire;
+        /**
+         * Reads whatever the socket has to offer each time it is called, and hands over every complete message, rather
+         * than blocking a thread per hub. Connecting still blocks, so it is done by the {@link #CONNECTOR}.
+         */
+        private final class EventLoopReader implements EventHandler {
+            private final Bytes<ByteBuffer> in = elasticByteBuffer(tcpBufferSize);
+            private final Wire inWire = wireType.apply(in);
+            private volatile boolean connecting;
+            private long reconnectAfterMs;
+            @Nullable
+            private ChronicleSocketChannel channel;
+            private boolean released;
+
+            @NotNull
+            @Override
+            public HandlerPriority priority() {
+                return priority;
+            }
+
+            @Override
+            public boolean action() throws InvalidEventHandlerException {
+                if (isShuttingdown()) {
+                    closeSocket();
+                    release();
+                    throw InvalidEventHandlerException.reusable();
+                }
+                // clientChannel is assigned before the handshake, which the connector reads
+                @Nullable final ChronicleSocketChannel clientChannel = TcpChannelHub.this.clientChannel;
+                if (clientChannel == null || connecting) {
+                    connect();
+                    return false;
+                }
+                if (clientChannel != channel) {
+                    channel = clientChannel;
+                    in.clear();
+                    tid = -1;
+                }
+
+                try {
+                    final int read = read(clientChannel);
+                    if (read > 0) {
+                        onMessageReceived();
+                    } else {
+                        final long millisecondsSinceLastMessageReceived = System.currentTimeMillis() - lastTimeMessageReceivedOrSent;
+                        if (millisecondsSinceLastMessageReceived - HEATBEAT_TIMEOUT_PERIOD > 0)
+                            throw new IOException("reconnecting due to heartbeat failure, time since " +
+                                    "last message=" + millisecondsSinceLastMessageReceived + "ms " +
+                                    "dropping connection to " + socketAddressSupplier);
+                    }
+                    final boolean busy = processFrames(in, inWire);
+                    compact(in);
+                    // replies claimed by subscriptions registered since the last message
+                    pendingReplies.deliverClaimed(pendingReplyConsumer);
+                    return busy;
+
+                } catch (Exception e) {
+                    tid = -1;
+                    if (isShuttingdown())
+                        return false;
+                    if (e instanceof ConnectionDroppedException) {
+                        if (DEBUG_ENABLED)
+                            Jvm.debug().on(TcpChannelHub.class, "reconnecting due to dropped connection " + e.getMessage());
+                    } else {
+                        Jvm.warn().on(TcpChannelHub.class, "reconnecting due to unexpected exception", e);
+                    }
+                    closeSocket();
+                    reconnectAfterMs = System.currentTimeMillis() +
+                            (connectionStrategy == null ? 500 : connectionStrategy.pauseMillisBeforeReconnect());
+                    return false;
+                }
+            }
+
+            private void connect() {
+                if (connecting || System.currentTimeMillis() < reconnectAfterMs)
+                    return;
+                connecting = true;
+                try {
+                    CONNECTOR.submit(() -> {
+                        try {
+                            attemptConnect();
+                        } catch (Throwable t) {
+                            if (!isShuttingdown())
+                                Jvm.warn().on(TcpChannelHub.class, "failed to connect remoteAddress=" + socketAddressSupplier, t);
+                        } finally {
+                            connecting = false;
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    connecting = false;
+                    throw e;
+                }
+            }
+
+            /**
+             * @return the number of bytes read
+             */
+            private int read(@NotNull final ChronicleSocketChannel clientChannel) throws IOException {
+                in.ensureCapacity(in.readLimit() + tcpBufferSize);
+                @NotNull final ByteBuffer buffer = in.underlyingObject();
+                buffer.limit(buffer.capacity());
+                buffer.position((int) in.readLimit());
+                final int read = clientChannel.read(buffer);
+                if (read < 0)
+                    throw new ConnectionDroppedException("Disconnection to server=" + socketAddressSupplier +
+                            " read=-1 , name=" + name);
+                WanSimulator.dataRead(read);
+                in.readLimit(buffer.position());
+                return read;
+            }
+
+            @Override
+            public void loopFinished() {
+                release();
+            }
+
+            private void release() {
+                if (released)
+                    return;
+                released = true;
+                in.releaseLast();
+                pendingReplies.clear();
+            }
         }
 
         final class TidReader implements ReadMarshallable {
@@ -22,6 +22,7 @@ import net.openhft.chronicle.core.Jvm;
 import net.openhft.chronicle.core.io.AbstractCloseable;
 import net.openhft.chronicle.wire.*;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -33,6 +34,8 @@ public class VanillaWireOutPublisher extends AbstractCloseable implements WireOu
     private final Bytes<ByteBuffer> bytes;
 
     private Wire wire;
+    @Nullable
+    private volatile Runnable onPublish;
 
     public VanillaWireOutPublisher(@NotNull WireType wireType) {
         bytes = Bytes.elasticByteBuffer(TcpChannelHub.TCP_BUFFER);
@@ -123,6 +126,14 @@ public class VanillaWireOutPublisher extends AbstractCloseable implements WireOu
                 assert wire.endUse();
             }
         }
+        final Runnable onPublish = this.onPublish;
+        if (onPublish != null)
+            onPublish.run();
+    }
+
+    @Override
+    public void onPublish(@Nullable final Runnable onPublish) {
+        this.onPublish = onPublish;
     }
 
     private Object lock() {
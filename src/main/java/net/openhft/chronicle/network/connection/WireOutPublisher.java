@@ -99,6 +99,13 @@ default boolean isEmpty() {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * @param onPublish called after each event is put, e.g. to wake the thread which writes them, or null. Publishers
+     *                  which don't support this ignore it, so whatever writes the events still has to poll for them.
+     */
+    default void onPublish(@Nullable Runnable onPublish) {
+    }
+
     /**
      * publishes an event without a throttle key
      *
@@ -0,0 +1,55 @@
+package net.openhft.chronicle.network.connection;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Waits for a full socket send buffer to drain. It yields a few times, as the buffer often drains quickly, then parks
+ * for exponentially longer, up to a limit, so a slow connection doesn't keep a core busy.
+ * <p>
+ * Not thread safe, each writer has its own.
+ */
+final class WriteBackoff {
+    static final int YIELDS = Integer.getInteger("tcp.client.write.yields", 10);
+    static final long MIN_PARK_NS = 1_000;
+    static final long MAX_PARK_NS = Long.getLong("tcp.client.write.maxParkUs", 1_000) * 1_000;
+
+    private int yields;
+    private long parkNs = MIN_PARK_NS;
+
+    /**
+     * called when the write made progress
+     */
+    void reset() {
+        yields = 0;
+        parkNs = MIN_PARK_NS;
+    }
+
+    /**
+     * @return how long it paused for in nanoseconds
+     */
+    long pause() {
+        final long start = System.nanoTime();
+        if (yields < YIELDS) {
+            yields++;
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(parkNs);
+            parkNs = Math.min(parkNs * 2, MAX_PARK_NS);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * @return how long the next park is for, once it has finished yielding
+     */
+    long parkNs() {
+        return parkNs;
+    }
+
+    /**
+     * @return true if the next pause yields rather than parks
+     */
+    boolean willYield() {
+        return yields < YIELDS;
+    }
+}
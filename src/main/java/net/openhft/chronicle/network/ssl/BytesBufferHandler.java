@@ -1,9 +1,11 @@
 package net.openhft.chronicle.network.ssl;
 
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Maths;
 import net.openhft.chronicle.core.io.IOTools;
 import net.openhft.chronicle.network.NetworkContext;
 import net.openhft.chronicle.network.api.TcpHandler;
+import org.jetbrains.annotations.NotNull;
 
 import java.nio.ByteBuffer;
 
@@ -23,6 +25,16 @@ public final class BytesBufferHandler<N extends NetworkContext<N>> implements Bu
     private Bytes<ByteBuffer> input;
     private Bytes<ByteBuffer> output;
     private N networkContext;
+    // views of the socket buffers, so their positions, used by the TcpEventHandler, are left alone
+    private ByteBuffer inputBuffer;
+    private ByteBuffer inputView;
+    private ByteBuffer outputBuffer;
+    private ByteBuffer outputView;
+    // reused wrappers of the SslEngineStateMachine's application buffers
+    private ByteBuffer applicationInputBuffer;
+    private Bytes<ByteBuffer> applicationInput;
+    private ByteBuffer applicationOutputBuffer;
+    private Bytes<ByteBuffer> applicationOutput;
 
     public void set(
             final TcpHandler<N> delegate,
@@ -41,9 +53,20 @@ public final class BytesBufferHandler<N extends NetworkContext<N>> implements Bu
     @Override
     public int readData(final ByteBuffer target) {
         final int toRead = Math.min(target.remaining(), (int) input.readRemaining());
-        for (int i = 0; i < toRead; i++) {
-            target.put(input.readByte());
+        if (toRead == 0)
+            return 0;
+        final int position = Maths.toInt32(input.readPosition());
+        final ByteBuffer buffer = input.underlyingObject();
+        if (buffer != inputBuffer) {
+            inputView = buffer.duplicate();
+            inputBuffer = buffer;
         }
+        final ByteBuffer source = inputView;
+        source.clear();
+        source.limit(position + toRead);
+        source.position(position);
+        target.put(source);
+        input.readSkip(toRead);
         return toRead;
     }
 
@@ -53,24 +76,36 @@ public final class BytesBufferHandler<N extends NetworkContext<N>> implements Bu
     @Override
     public void handleDecryptedData(final ByteBuffer input, final ByteBuffer output) {
         final Bytes<ByteBuffer> applicationInput;
-        if (input.position() != 0) {
-            input.flip();
-            applicationInput = Bytes.wrapForRead(input);
-            IOTools.unmonitor(applicationInput); // temporary wrapper
+        final int inputLength = input.position();
+        if (inputLength != 0) {
+            if (input != applicationInputBuffer) {
+                releaseLast(this.applicationInput);
+                this.applicationInput = unmonitored(Bytes.wrapForRead(input));
+                applicationInputBuffer = input;
+            }
+            applicationInput = this.applicationInput;
+            applicationInput.readPositionRemaining(0, inputLength);
         } else {
             applicationInput = EMPTY_APPLICATION_INPUT;
         }
 
-        final Bytes<ByteBuffer> applicationOutput = Bytes.wrapForWrite(output);
-        try {
-            delegateHandler.process(applicationInput, applicationOutput, networkContext);
-            output.position((int) applicationOutput.writePosition());
-        } finally {
-            applicationOutput.releaseLast();
+        if (output != applicationOutputBuffer) {
+            releaseLast(applicationOutput);
+            applicationOutput = unmonitored(Bytes.wrapForWrite(output));
+            applicationOutputBuffer = output;
         }
+        applicationOutput.clear();
+        applicationOutput.writeLimit(output.limit());
+        applicationOutput.writePosition(output.position());
+        applicationOutput.readPosition(output.position());
 
-        input.position((int) applicationInput.readPosition());
-        if (applicationInput.readPosition() != 0) {
+        delegateHandler.process(applicationInput, applicationOutput, networkContext);
+        output.position(Maths.toInt32(applicationOutput.writePosition()));
+
+        final int consumed = Maths.toInt32(applicationInput.readPosition());
+        if (consumed != 0) {
+            input.flip();
+            input.position(consumed);
             input.compact();
         }
     }
@@ -87,9 +122,51 @@ public final class BytesBufferHandler<N extends NetworkContext<N>> implements Bu
                 (output.writeRemaining() > Integer.MAX_VALUE ?
                         Integer.MAX_VALUE : output.writeRemaining());
         final int toWrite = Math.min(encrypted.remaining(), writeRemaining);
-        for (int i = 0; i < toWrite; i++) {
-            output.writeByte(encrypted.get());
+        if (toWrite == 0)
+            return 0;
+        final long position = output.writePosition();
+        // may replace the underlying buffer
+        output.ensureCapacity(position + toWrite);
+        final ByteBuffer buffer = output.underlyingObject();
+        if (buffer != outputBuffer) {
+            outputView = buffer.duplicate();
+            outputBuffer = buffer;
+        }
+        final ByteBuffer target = outputView;
+        target.clear();
+        target.limit(Maths.toInt32(position + toWrite));
+        target.position(Maths.toInt32(position));
+
+        final int limit = encrypted.limit();
+        encrypted.limit(encrypted.position() + toWrite);
+        try {
+            target.put(encrypted);
+        } finally {
+            encrypted.limit(limit);
         }
+        output.writeSkip(toWrite);
         return toWrite;
     }
-}
\ No newline at end of file
+
+    /**
+     * releases the wrappers of the application buffers
+     */
+    public void releaseBuffers() {
+        releaseLast(applicationInput);
+        releaseLast(applicationOutput);
+        applicationInput = applicationOutput = null;
+        applicationInputBuffer = applicationOutputBuffer = null;
+        inputBuffer = inputView = outputBuffer = outputView = null;
+    }
+
+    @NotNull
+    private static Bytes<ByteBuffer> unmonitored(@NotNull final Bytes<ByteBuffer> bytes) {
+        IOTools.unmonitor(bytes); // lives as long as the connection
+        return bytes;
+    }
+
+    private static void releaseLast(final Bytes<ByteBuffer> bytes) {
+        if (bytes != null)
+            bytes.releaseLast();
+    }
+}
@@ -0,0 +1,133 @@
+package net.openhft.chronicle.network.ssl;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.threads.NamedThreadFactory;
+import net.openhft.chronicle.threads.Threads;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the {@link javax.net.ssl.SSLEngine#getDelegatedTask()} tasks of SSL handshakes, which do the expensive key
+ * exchange calculations, so they don't hold up the event loop. The connection waits until its tasks have completed.
+ * <p>
+ * The queue is bounded, once it is full tasks are run by the caller.
+ */
+public final class DelegatedTaskExecutor extends AbstractCloseable {
+    private static final int THREADS = Integer.getInteger("ssl.delegatedTask.threads", Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_SIZE = Integer.getInteger("ssl.delegatedTask.queueSize", 1024);
+    private static DelegatedTaskExecutor shared;
+
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong completedTasks = new AtomicLong();
+    private final AtomicLong callerRunTasks = new AtomicLong();
+    private final AtomicLong totalTaskNanos = new AtomicLong();
+    private final AtomicLong maxTaskNanos = new AtomicLong();
+
+    public DelegatedTaskExecutor(@NotNull final String name, final int threads, final int queueSize) {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new NamedThreadFactory(name, true));
+    }
+
+    /**
+     * @return the executor used by default, configured with -Dssl.delegatedTask.threads and -Dssl.delegatedTask.queueSize
+     */
+    @NotNull
+    public static synchronized DelegatedTaskExecutor shared() {
+        if (shared == null)
+            shared = new DelegatedTaskExecutor("ssl-delegated-task", THREADS, QUEUE_SIZE);
+        return shared;
+    }
+
+    /**
+     * runs the task on a worker, or the calling thread if the queue is full
+     *
+     * @param task       to run
+     * @param onComplete called after the task, whether it succeeded or not
+     */
+    public void execute(@NotNull final Runnable task, @NotNull final Runnable onComplete) {
+        final Runnable timed = () -> {
+            final long start = System.nanoTime();
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                Jvm.warn().on(DelegatedTaskExecutor.class, "Delegated task threw exception", e);
+            } finally {
+                final long elapsed = System.nanoTime() - start;
+                totalTaskNanos.addAndGet(elapsed);
+                maxTaskNanos.accumulateAndGet(elapsed, Math::max);
+                completedTasks.incrementAndGet();
+                onComplete.run();
+            }
+        };
+        try {
+            executor.execute(timed);
+        } catch (RejectedExecutionException e) {
+            callerRunTasks.incrementAndGet();
+            timed.run();
+        }
+    }
+
+    /**
+     * @return the number of tasks waiting for a thread
+     */
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of tasks being run
+     */
+    public int activeTasks() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return the number of tasks completed, including those run by the caller
+     */
+    public long completedTasks() {
+        return completedTasks.get();
+    }
+
+    /**
+     * @return the number of tasks run by the caller as the queue was full
+     */
+    public long callerRunTasks() {
+        return callerRunTasks.get();
+    }
+
+    public long totalTaskNanos() {
+        return totalTaskNanos.get();
+    }
+
+    public long averageTaskNanos() {
+        final long completed = completedTasks.get();
+        return completed == 0 ? 0 : totalTaskNanos.get() / completed;
+    }
+
+    public long maxTaskNanos() {
+        return maxTaskNanos.get();
+    }
+
+    @Override
+    protected void performClose() {
+        Threads.shutdown(executor);
+    }
+
+    @Override
+    public String toString() {
+        return "DelegatedTaskExecutor{" +
+                "queueDepth=" + queueDepth() +
+                ", activeTasks=" + activeTasks() +
+                ", completedTasks=" + completedTasks() +
+                ", callerRunTasks=" + callerRunTasks() +
+                ", averageTaskNanos=" + averageTaskNanos() +
+                ", maxTaskNanos=" + maxTaskNanos() +
+                '}';
+    }
+}
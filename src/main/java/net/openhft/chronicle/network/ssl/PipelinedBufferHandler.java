@@ -0,0 +1,122 @@
+package net.openhft.chronicle.network.ssl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Maths;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connects an {@link SslEngineStateMachine} running on its own thread to the socket buffers of a
+ * {@link net.openhft.chronicle.network.TcpEventHandler}.
+ * <p>
+ * The I/O thread calls {@link #transfer} to move cipher text between the socket buffers and a pair of single producer,
+ * single consumer rings. The state machine reads and writes cipher text through the rings, and passes decrypted data to
+ * the delegate as usual.
+ * <p>
+ * The rings are sized from the packet size the engine negotiated and taken from an {@link SslBufferPool}.
+ */
+final class PipelinedBufferHandler implements BufferHandler {
+    private static final int RING_PACKETS = Integer.getInteger("ssl.pipeline.ringPackets", 4);
+
+    private final BufferHandler decryptedDataHandler;
+    private final SslBufferPool pool;
+    // the I/O thread and the pipeline thread, the rings are released once both have finished with them
+    private final AtomicInteger users = new AtomicInteger(2);
+    private SpscByteRing inbound;
+    private SpscByteRing outbound;
+    // views of the socket buffers, only used by the I/O thread
+    private ByteBuffer inBuffer;
+    private ByteBuffer inView;
+    private ByteBuffer outBuffer;
+    private ByteBuffer outView;
+
+    PipelinedBufferHandler(@NotNull final BufferHandler decryptedDataHandler, @NotNull final SslBufferPool pool) {
+        this.decryptedDataHandler = decryptedDataHandler;
+        this.pool = pool;
+    }
+
+    /**
+     * called once the engine has been created, before either thread uses the rings
+     *
+     * @param packetBufferSize the largest record the engine will read or write
+     */
+    void allocate(final int packetBufferSize) {
+        inbound = new SpscByteRing(packetBufferSize * RING_PACKETS, pool);
+        outbound = new SpscByteRing(packetBufferSize * RING_PACKETS, pool);
+    }
+
+    /**
+     * called by each of the two threads once it will use the rings no more, the last returns them to the pool
+     */
+    void release() {
+        if (users.decrementAndGet() != 0 || inbound == null)
+            return;
+        inbound.release();
+        outbound.release();
+    }
+
+    /**
+     * called by the I/O thread, passes received cipher text to the state machine and collects what it has to send.
+     *
+     * @return true if anything was moved
+     */
+    boolean transfer(@NotNull final Bytes<ByteBuffer> in, @NotNull final Bytes<ByteBuffer> out) {
+        boolean busy = false;
+        if (in.readRemaining() > 0) {
+            final ByteBuffer buffer = in.underlyingObject();
+            if (buffer != inBuffer) {
+                inView = buffer.duplicate();
+                inBuffer = buffer;
+            }
+            inView.clear();
+            inView.limit(Maths.toInt32(in.readLimit()));
+            inView.position(Maths.toInt32(in.readPosition()));
+            final int written = inbound.write(inView);
+            in.readSkip(written);
+            busy = written > 0;
+        }
+
+        final int toSend = outbound.readRemaining();
+        if (toSend > 0) {
+            final long position = out.writePosition();
+            out.ensureCapacity(position + toSend);
+            final ByteBuffer buffer = out.underlyingObject();
+            if (buffer != outBuffer) {
+                outView = buffer.duplicate();
+                outBuffer = buffer;
+            }
+            outView.clear();
+            outView.limit(Maths.toInt32(position + toSend));
+            outView.position(Maths.toInt32(position));
+            out.writeSkip(outbound.read(outView));
+            busy = true;
+        }
+        return busy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int readData(final ByteBuffer target) {
+        return inbound.read(target);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void handleDecryptedData(final ByteBuffer input, final ByteBuffer output) {
+        decryptedDataHandler.handleDecryptedData(input, output);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int writeData(final ByteBuffer encrypted) {
+        return outbound.write(encrypted);
+    }
+}
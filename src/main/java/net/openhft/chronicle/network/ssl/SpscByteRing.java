@@ -0,0 +1,122 @@
+package net.openhft.chronicle.network.ssl;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A ring buffer of bytes for passing data from exactly one writing thread to exactly one reading thread.
+ */
+final class SpscByteRing {
+    private final int capacity;
+    private final int mask;
+    // where the buffer came from, or null if it was allocated by this ring
+    @Nullable
+    private final SslBufferPool pool;
+    private final ByteBuffer buffer;
+    // only used by the writer and reader respectively
+    private final ByteBuffer writeView;
+    private final ByteBuffer readView;
+    // total bytes read and written
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    SpscByteRing(final int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity rounded up to a power of two, of at least 4 KiB
+     * @param pool     to take the buffer from, and return it to on {@link #release()}, or null to allocate it
+     */
+    SpscByteRing(final int capacity, @Nullable final SslBufferPool pool) {
+        this.capacity = Integer.highestOneBit(Math.max(capacity, 4096) - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.pool = pool;
+        // the pool rounds to a multiple of 4 KiB, so a power of two is not rounded again
+        this.buffer = pool == null ? ByteBuffer.allocateDirect(this.capacity) : pool.acquire(this.capacity);
+        this.writeView = buffer.duplicate();
+        this.readView = buffer.duplicate();
+    }
+
+    /**
+     * @return the number of bytes the ring can hold
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * returns the buffer to the pool, once neither the reader nor the writer will use the ring again
+     */
+    void release() {
+        if (pool != null)
+            pool.release(buffer);
+    }
+
+    /**
+     * called by the writer, copies as much of {@code src} as will fit
+     *
+     * @return the number of bytes copied
+     */
+    int write(@NotNull final ByteBuffer src) {
+        final long t = tail.get();
+        final int free = capacity - (int) (t - head.get());
+        final int length = Math.min(free, src.remaining());
+        if (length == 0)
+            return 0;
+        final int offset = (int) (t & mask);
+        final int first = Math.min(length, capacity - offset);
+        copy(src, writeView, offset, first);
+        if (length > first)
+            copy(src, writeView, 0, length - first);
+        tail.lazySet(t + length);
+        return length;
+    }
+
+    /**
+     * called by the reader, copies as much as will fit in {@code dst}
+     *
+     * @return the number of bytes copied
+     */
+    int read(@NotNull final ByteBuffer dst) {
+        final long h = head.get();
+        final int available = (int) (tail.get() - h);
+        final int length = Math.min(available, dst.remaining());
+        if (length == 0)
+            return 0;
+        final int offset = (int) (h & mask);
+        final int first = Math.min(length, capacity - offset);
+        readView.limit(offset + first);
+        readView.position(offset);
+        dst.put(readView);
+        if (length > first) {
+            readView.limit(length - first);
+            readView.position(0);
+            dst.put(readView);
+        }
+        head.lazySet(h + length);
+        return length;
+    }
+
+    /**
+     * @return the number of bytes waiting to be read
+     */
+    int readRemaining() {
+        return (int) (tail.get() - head.get());
+    }
+
+    private static void copy(@NotNull final ByteBuffer src, @NotNull final ByteBuffer view, final int offset, final int length) {
+        view.limit(offset + length);
+        view.position(offset);
+        final int limit = src.limit();
+        src.limit(src.position() + length);
+        try {
+            view.put(src);
+        } finally {
+            src.limit(limit);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package net.openhft.chronicle.network.ssl;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of the direct buffers used by SSL connections, so connections which come and go reuse the same memory
+ * rather than leaving it to the Cleaner.
+ * <p>
+ * Buffers are rounded up to a multiple of 4 KiB, so packet and application sized buffers each share a size.
+ */
+public final class SslBufferPool {
+    private static final int ROUND_TO = 4 << 10;
+    private static final int MAX_PER_SIZE = Integer.getInteger("ssl.bufferPool.maxPerSize", 256);
+    private static final SslBufferPool SHARED = new SslBufferPool(MAX_PER_SIZE);
+
+    private final int maxPerSize;
+    private final ConcurrentHashMap<Integer, SizeClass> sizeClasses = new ConcurrentHashMap<>();
+    private final AtomicLong allocated = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    public SslBufferPool(final int maxPerSize) {
+        this.maxPerSize = maxPerSize;
+    }
+
+    /**
+     * @return the pool used by default, which keeps up to -Dssl.bufferPool.maxPerSize buffers of each size
+     */
+    @NotNull
+    public static SslBufferPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * @return a cleared direct buffer with a capacity of at least {@code size}
+     */
+    @NotNull
+    public ByteBuffer acquire(final int size) {
+        final int capacity = (size + ROUND_TO - 1) / ROUND_TO * ROUND_TO;
+        final SizeClass sizeClass = sizeClasses.computeIfAbsent(capacity, c -> new SizeClass());
+        final ByteBuffer buffer = sizeClass.buffers.poll();
+        if (buffer != null) {
+            sizeClass.pooled.decrementAndGet();
+            reused.incrementAndGet();
+            buffer.clear();
+            return buffer;
+        }
+        allocated.incrementAndGet();
+        return ByteBuffer.allocateDirect(capacity);
+    }
+
+    /**
+     * returns a buffer to the pool, it must not be used again by the caller
+     */
+    public void release(@NotNull final ByteBuffer buffer) {
+        final SizeClass sizeClass = sizeClasses.get(buffer.capacity());
+        // not from this pool, or the pool is full
+        if (sizeClass == null || !buffer.isDirect())
+            return;
+        if (sizeClass.pooled.incrementAndGet() > maxPerSize) {
+            sizeClass.pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        sizeClass.buffers.add(buffer);
+    }
+
+    /**
+     * @return the number of buffers allocated because none were pooled
+     */
+    public long allocated() {
+        return allocated.get();
+    }
+
+    /**
+     * @return the number of buffers taken from the pool
+     */
+    public long reused() {
+        return reused.get();
+    }
+
+    /**
+     * @return the number of buffers waiting to be reused
+     */
+    public int pooled() {
+        int pooled = 0;
+        for (SizeClass sizeClass : sizeClasses.values())
+            pooled += sizeClass.pooled.get();
+        return pooled;
+    }
+
+    @Override
+    public String toString() {
+        return "SslBufferPool{" +
+                "allocated=" + allocated() +
+                ", reused=" + reused() +
+                '}';
+    }
+
+    private static final class SizeClass {
+        final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        final AtomicInteger pooled = new AtomicInteger();
+    }
+}
@@ -1,12 +1,16 @@
 package net.openhft.chronicle.network.ssl;
 
 import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.threads.EventHandler;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.InvalidEventHandlerException;
 import net.openhft.chronicle.network.NetworkContextManager;
 import net.openhft.chronicle.network.TcpEventHandler;
 import net.openhft.chronicle.network.api.TcpHandler;
 import net.openhft.chronicle.network.api.session.SessionDetailsProvider;
-import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,11 +20,15 @@ import java.time.Instant;
 /**
  * This class is designed to wrap a standard {@link TcpHandler}, providing symmetric encryption/decryption transparently to the underlying handler.
  * <p>
- * When <code>process</code> is called by the {@link TcpEventHandler}, this class will first attempt to perform an SSL handshake with the remote
- * connection. This is a blocking operation, and the <code>process</code> call will not return until the handshake is successful, or fails.
+ * Each call to <code>process</code> by the {@link TcpEventHandler} is delegated to the {@link SslEngineStateMachine} class, which first performs
+ * the SSL handshake with the remote connection a step at a time, without blocking the event loop, then manages the conversion of data between
+ * plain-text and cipher-text either end of the network connection.
  * <p>
- * Further operation is delegated to the {@link SslEngineStateMachine} class, which manages the conversion of data between plain-text and cipher-text
- * either end of the network connection.
+ * If the {@link SslNetworkContext#sslPipelineEventLoop()} is set, the state machine, and so the delegate, run on that
+ * event loop instead, and <code>process</code> only moves cipher-text between the socket buffers and the state machine.
+ * The delegate is then only called on the pipeline's event loop, <code>onEndOfConnection</code> and
+ * <code>onReadComplete</code> are passed on to it there, while <code>onReadTime</code>, <code>onWriteTime</code> and
+ * <code>sendHeartBeat</code>, which are about the socket buffers of cipher-text, are not passed on.
  *
  * @param <N> the type of NetworkContext
  */
@@ -31,7 +39,13 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
     private final TcpHandler<N> delegate;
     private final BytesBufferHandler<N> bufferHandler = new BytesBufferHandler<>();
     private SslEngineStateMachine stateMachine;
-    private boolean handshakeComplete;
+    @Nullable
+    private PipelinedBufferHandler pipeline;
+    private volatile boolean pipelineClosed;
+    // calls made on the I/O thread, for the pipeline stage to make on its thread
+    private volatile boolean endOfConnection;
+    private volatile boolean heartbeatTimeOut;
+    private volatile boolean readComplete;
 
     public SslDelegatingTcpHandler(final TcpHandler<N> delegate) {
         this.delegate = delegate;
@@ -44,18 +58,25 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
     public void process(@NotNull final Bytes in, @NotNull final Bytes out, final N nc) {
         throwExceptionIfClosed();
 
-        if (!handshakeComplete) {
-            try {
-                doHandshake(nc);
-            } catch (Throwable t) {
-                LOGGER.error("Failed to complete SSL handshake at " + Instant.now(), t);
-                throw new IllegalStateException("Unable to perform handshake", t);
-            }
-            handshakeComplete = true;
+        if (stateMachine == null)
+            initialise(nc);
+
+        if (pipeline != null) {
+            // the state machine runs on the pipeline's event loop
+            pipeline.transfer(in, out);
+            return;
         }
 
         bufferHandler.set(delegate, in, out, nc);
-        stateMachine.action();
+        try {
+            stateMachine.action();
+        } catch (RuntimeException e) {
+            if (!stateMachine.isHandshakeComplete()) {
+                LOGGER.error("Failed to complete SSL handshake at " + Instant.now(), e);
+                throw new IllegalStateException("Unable to perform handshake", e);
+            }
+            throw e;
+        }
     }
 
     /**
@@ -65,6 +86,8 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
     public void sendHeartBeat(final Bytes out, final SessionDetailsProvider sessionDetails) {
         throwExceptionIfClosed();
 
+        if (pipeline != null)
+            return;
         delegate.sendHeartBeat(out, sessionDetails);
     }
 
@@ -75,6 +98,11 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
     public void onEndOfConnection(final boolean heartbeatTimeOut) {
         // throwExceptionIfClosed();
 
+        if (pipeline != null) {
+            this.heartbeatTimeOut = heartbeatTimeOut;
+            endOfConnection = true;
+            return;
+        }
         delegate.onEndOfConnection(heartbeatTimeOut);
     }
 
@@ -83,12 +111,33 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
      */
     @Override
     public void close() {
-        if (stateMachine != null) {
-            stateMachine.close();
+        // the buffers are released on the thread using them, by loopFinished() or the pipeline stage
+        if (pipeline != null) {
+            // the pipeline stage may be calling the delegate, so it closes the delegate too
+            pipelineClosed = true;
+            return;
         }
+        if (stateMachine != null)
+            stateMachine.close();
         delegate.close();
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loopFinished() {
+        if (pipeline != null) {
+            // the pipeline stage calls the delegate's loopFinished()
+            pipeline.release();
+            return;
+        }
+        if (stateMachine != null)
+            stateMachine.release();
+        bufferHandler.releaseBuffers();
+        delegate.loopFinished();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -96,6 +145,8 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
     public void onReadTime(final long readTimeNS, final ByteBuffer inBB, final int position, final int limit) {
         throwExceptionIfClosed();
 
+        if (pipeline != null)
+            return;
         delegate.onReadTime(readTimeNS, inBB, position, limit);
     }
 
@@ -109,6 +160,8 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
             , final int limit) {
         throwExceptionIfClosed();
 
+        if (pipeline != null)
+            return;
         delegate.onWriteTime(writeTimeNS, byteBuffer, position, limit);
     }
 
@@ -119,6 +172,10 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
     public void onReadComplete() {
         throwExceptionIfClosed();
 
+        if (pipeline != null) {
+            readComplete = true;
+            return;
+        }
         delegate.onReadComplete();
     }
 
@@ -143,7 +200,7 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
      */
     @Override
     public boolean isClosed() {
-        return delegate.isClosed();
+        return pipelineClosed || delegate.isClosed();
     }
 
     /**
@@ -166,9 +223,75 @@ public final class SslDelegatingTcpHandler<N extends SslNetworkContext<N>>
         }
     }
 
-    private void doHandshake(final N nc) {
-        stateMachine = new SslEngineStateMachine(bufferHandler, nc.isAcceptor());
-        ChronicleSocketChannel socketChannel = nc.socketChannel();
-        stateMachine.initialise(nc.sslContext(), socketChannel);
+    private void initialise(final N nc) {
+        final EventLoop pipelineEventLoop = nc.sslPipelineEventLoop();
+        if (pipelineEventLoop == null) {
+            stateMachine = new SslEngineStateMachine(bufferHandler, nc.isAcceptor());
+        } else {
+            // only the decrypted side of the bufferHandler is used
+            bufferHandler.set(delegate, null, null, nc);
+            pipeline = new PipelinedBufferHandler(bufferHandler, SslBufferPool.shared());
+            stateMachine = new SslEngineStateMachine(pipeline, nc.isAcceptor());
+        }
+        stateMachine.initialise(nc.sslContext(), nc.socketChannel(), nc.delegatedTaskExecutor(), nc.sslSessionCache());
+        stateMachine.recordSizing(nc.sslCoalesceBytes(), nc.sslCoalesceDelayNanos(), nc.sslDynamicRecordSizing());
+
+        if (pipeline != null) {
+            pipeline.allocate(stateMachine.packetBufferSize());
+            pipelineEventLoop.addHandler(new PipelineStage(nc));
+        }
+    }
+
+    /**
+     * encrypts and decrypts on the pipeline's event loop
+     */
+    private final class PipelineStage implements EventHandler {
+        private final N nc;
+        private boolean released;
+
+        PipelineStage(final N nc) {
+            this.nc = nc;
+        }
+
+        @Override
+        public boolean action() throws InvalidEventHandlerException {
+            if (endOfConnection) {
+                endOfConnection = false;
+                delegate.onEndOfConnection(heartbeatTimeOut);
+            }
+            if (pipelineClosed) {
+                release();
+                throw new InvalidEventHandlerException("closed");
+            }
+            try {
+                final boolean busy = stateMachine.action();
+                if (readComplete) {
+                    readComplete = false;
+                    delegate.onReadComplete();
+                }
+                return busy;
+            } catch (RuntimeException e) {
+                LOGGER.error("SSL pipeline failed at " + Instant.now(), e);
+                release();
+                Closeable.closeQuietly(nc);
+                throw new InvalidEventHandlerException(e);
+            }
+        }
+
+        @Override
+        public void loopFinished() {
+            release();
+        }
+
+        private void release() {
+            if (released)
+                return;
+            released = true;
+            stateMachine.release();
+            bufferHandler.releaseBuffers();
+            pipeline.release();
+            Closeable.closeQuietly(delegate);
+            delegate.loopFinished();
+        }
     }
-}
\ No newline at end of file
+}
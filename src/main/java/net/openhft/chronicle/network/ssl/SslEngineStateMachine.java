@@ -2,6 +2,7 @@ package net.openhft.chronicle.network.ssl;
 
 import net.openhft.chronicle.core.io.IORuntimeException;
 import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,8 +11,10 @@ import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLEngineResult;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class is responsible for the following:
@@ -20,14 +23,20 @@ import java.time.Instant;
  * 2. Read encrypted input data from the input buffer and decrypt it for the underlying TcpHandler
  * 3. Encrypt output data from the underlying TcpHandler, and write it to the output buffer
  * <p>
- * <code>initialise</code> is a blocking operation that will only return when a successful
- * SSL handshake has occurred, or if an exception occurred.
+ * The SSL handshake is performed a step at a time by <code>action</code>, without blocking, before any data is passed
+ * to the underlying TcpHandler.
  */
 final class SslEngineStateMachine {
     private static final Logger LOGGER = LoggerFactory.getLogger(SslEngineStateMachine.class);
+    private static final ByteBuffer[] NO_APPLICATION_DATA = {ByteBuffer.allocate(0)};
+    // fits a record in a typical packet, after the TCP/IP and TLS overheads
+    private static final int SMALL_RECORD_SIZE = Integer.getInteger("ssl.smallRecordSize", 1360);
+    private static final long RAMP_UP_BYTES = Long.getLong("ssl.dynamicRecord.rampUpBytes", 1 << 20);
+    private static final long IDLE_NANOS = Long.getLong("ssl.dynamicRecord.idleMs", 1000) * 1_000_000;
 
     private final BufferHandler bufferHandler;
     private final boolean isAcceptor;
+    private final SslBufferPool bufferPool;
 
     private SSLEngine engine;
     private ByteBuffer outboundApplicationData;
@@ -36,52 +45,130 @@ final class SslEngineStateMachine {
     private ByteBuffer inboundApplicationData;
     private ByteBuffer[] precomputedWrapArray;
     private ByteBuffer[] precomputedUnwrapArray;
+    private ChronicleSocketChannel channel;
+    private boolean handshakeStarted;
+    private boolean handshakeComplete;
+    private volatile boolean closed;
+    private boolean released;
+    @Nullable
+    private DelegatedTaskExecutor taskExecutor;
+    @Nullable
+    private SslSessionCache sessionCache;
+    private long handshakeStartMillis;
+    // record sizing
+    private int coalesceBytes;
+    private long coalesceDelayNanos;
+    private boolean dynamicRecordSizing;
+    private long firstPendingNanos;
+    private long lastWrapNanos;
+    private long bytesSinceIdle;
+    // delegated tasks still running, the handshake waits for these
+    private final AtomicInteger pendingTasks = new AtomicInteger();
 
     SslEngineStateMachine(
             final BufferHandler bufferHandler, final boolean isAcceptor) {
+        this(bufferHandler, isAcceptor, SslBufferPool.shared());
+    }
+
+    SslEngineStateMachine(
+            final BufferHandler bufferHandler, final boolean isAcceptor, final SslBufferPool bufferPool) {
         this.bufferHandler = bufferHandler;
         this.isAcceptor = isAcceptor;
+        this.bufferPool = bufferPool;
     }
 
     void initialise(SSLContext ctx, ChronicleSocketChannel channel) {
+        initialise(ctx, channel, DelegatedTaskExecutor.shared(), SslSessionCache.shared());
+    }
+
+    /**
+     * @param taskExecutor to run the handshake's delegated tasks on, or null to run them in <code>action</code>
+     * @param sessionCache to record whether the session was resumed in, or null
+     */
+    void initialise(SSLContext ctx,
+                    ChronicleSocketChannel channel,
+                    @Nullable DelegatedTaskExecutor taskExecutor,
+                    @Nullable SslSessionCache sessionCache) {
+        this.taskExecutor = taskExecutor;
+        this.sessionCache = sessionCache;
         try {
             channel.configureBlocking(false);
-            engine = ctx.createSSLEngine();
+            // the SSLContext only resumes sessions for engines created with the peer's address
+            final InetSocketAddress remoteAddress = channel.getRemoteAddress();
+            if (remoteAddress == null) {
+                engine = ctx.createSSLEngine();
+            } else {
+                engine = ctx.createSSLEngine(remoteAddress.getHostString(), remoteAddress.getPort());
+            }
             engine.setUseClientMode(!isAcceptor);
             if (isAcceptor) {
                 engine.setNeedClientAuth(true);
             }
-            outboundApplicationData = ByteBuffer.allocateDirect(engine.getSession().getApplicationBufferSize());
-            outboundEncodedData = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
-            inboundApplicationData = ByteBuffer.allocateDirect(engine.getSession().getApplicationBufferSize());
-            inboundEncodedData = ByteBuffer.allocateDirect(engine.getSession().getPacketBufferSize());
+            outboundApplicationData = bufferPool.acquire(engine.getSession().getApplicationBufferSize());
+            outboundEncodedData = bufferPool.acquire(engine.getSession().getPacketBufferSize());
+            inboundApplicationData = bufferPool.acquire(engine.getSession().getApplicationBufferSize());
+            inboundEncodedData = bufferPool.acquire(engine.getSession().getPacketBufferSize());
             // eliminates array creation on each call to SSLEngine.wrap()
             precomputedWrapArray = new ByteBuffer[]{outboundApplicationData};
             precomputedUnwrapArray = new ByteBuffer[]{inboundApplicationData};
 
-            new Handshaker().performHandshake(engine, channel);
+            this.channel = channel;
         } catch (IOException e) {
-            throw new RuntimeException("Unable to perform handshake at " + Instant.now(), e);
+            throw new RuntimeException("Unable to initialise SSL engine at " + Instant.now(), e);
         }
     }
 
+    /**
+     * @return the largest record the engine will read or write, once initialised
+     */
+    int packetBufferSize() {
+        return engine.getSession().getPacketBufferSize();
+    }
+
+    /**
+     * @param coalesceBytes       output to wait for before encrypting it, or 0 not to wait
+     * @param coalesceDelayNanos  the longest to wait for coalesceBytes
+     * @param dynamicRecordSizing use small records until the connection is busy
+     */
+    void recordSizing(int coalesceBytes, long coalesceDelayNanos, boolean dynamicRecordSizing) {
+        this.coalesceBytes = coalesceBytes;
+        this.coalesceDelayNanos = coalesceDelayNanos;
+        this.dynamicRecordSizing = dynamicRecordSizing;
+    }
+
     public boolean action() {
+        if (closed)
+            return false;
+        if (!handshakeComplete)
+            return handshake();
+
         final int read;
         boolean busy = false;
         bufferHandler.handleDecryptedData(inboundApplicationData, outboundApplicationData);
         try {
-            if (outboundApplicationData.position() != 0) {
+            final long now = coalesceBytes > 0 || dynamicRecordSizing ? System.nanoTime() : 0;
+            if (outboundApplicationData.position() != 0 && !coalesce(now)) {
 
                 outboundApplicationData.flip();
+                final int limit = outboundApplicationData.limit();
+                final int recordSize = recordSize(now);
+                if (outboundApplicationData.remaining() > recordSize)
+                    outboundApplicationData.limit(outboundApplicationData.position() + recordSize);
 
-                if (engine.wrap(precomputedWrapArray, outboundEncodedData).
-                        getStatus() == SSLEngineResult.Status.CLOSED) {
+                final SSLEngineResult result = engine.wrap(precomputedWrapArray, outboundEncodedData);
+                outboundApplicationData.limit(limit);
+                if (result.getStatus() == SSLEngineResult.Status.CLOSED) {
                     LOGGER.warn("Socket closed");
                     return false;
                 }
+                bytesSinceIdle += result.bytesConsumed();
+                lastWrapNanos = now;
                 busy = outboundApplicationData.hasRemaining();
                 outboundApplicationData.compact();
+                if (!busy)
+                    firstPendingNanos = 0;
             }
+            // holding back output to coalesce isn't busy, the event loop polls again after it pauses
             if (outboundEncodedData.position() != 0) {
                 outboundEncodedData.flip();
                 bufferHandler.writeData(outboundEncodedData);
@@ -115,7 +202,197 @@ final class SslEngineStateMachine {
         return busy;
     }
 
+    /**
+     * @return true to hold back the output for now, in the hope more is written to fill the record
+     */
+    private boolean coalesce(final long now) {
+        if (coalesceBytes <= 0 || outboundApplicationData.position() >= coalesceBytes)
+            return false;
+        if (firstPendingNanos == 0) {
+            firstPendingNanos = now;
+            return true;
+        }
+        return now - firstPendingNanos < coalesceDelayNanos;
+    }
+
+    /**
+     * @return the most output to put in the next record
+     */
+    private int recordSize(final long now) {
+        if (!dynamicRecordSizing)
+            return Integer.MAX_VALUE;
+        if (now - lastWrapNanos > IDLE_NANOS)
+            bytesSinceIdle = 0;
+        return bytesSinceIdle < RAMP_UP_BYTES ? SMALL_RECORD_SIZE : Integer.MAX_VALUE;
+    }
+
+    /**
+     * performs as much of the handshake as it can without waiting for the peer
+     *
+     * @return true if any progress was made
+     */
+    private boolean handshake() {
+        try {
+            if (!handshakeStarted) {
+                if (!channel.finishConnect())
+                    return false;
+                if (LOGGER.isDebugEnabled())
+                    LOGGER.debug("{} is client: {}", socketToString(channel), engine.getUseClientMode());
+                handshakeStartMillis = System.currentTimeMillis();
+                engine.beginHandshake();
+                handshakeStarted = true;
+            }
+
+            // waiting for delegated tasks
+            if (pendingTasks.get() != 0)
+                return false;
+
+            boolean busy = flushEncodedData();
+            for (; ; ) {
+                final SSLEngineResult.HandshakeStatus status = engine.getHandshakeStatus();
+                switch (status) {
+                    case NEED_WRAP: {
+                        final SSLEngineResult result = engine.wrap(NO_APPLICATION_DATA, outboundEncodedData);
+                        switch (result.getStatus()) {
+                            case OK:
+                                busy |= flushEncodedData();
+                                break;
+                            case BUFFER_OVERFLOW:
+                                // try again once more has been written
+                                if (!flushEncodedData())
+                                    return busy;
+                                busy = true;
+                                break;
+                            default:
+                                throw new IORuntimeException("Unable to wrap handshake data, status: " + result.getStatus());
+                        }
+                        break;
+                    }
+                    case NEED_UNWRAP: {
+                        final int read = bufferHandler.readData(inboundEncodedData);
+                        if (read < 0)
+                            throw new IORuntimeException("Socket closed");
+                        busy |= read > 0;
+                        if (!unwrapHandshakeData())
+                            return busy;
+                        busy = true;
+                        break;
+                    }
+                    case NEED_TASK: {
+                        Runnable delegatedTask;
+                        if (taskExecutor == null) {
+                            while ((delegatedTask = engine.getDelegatedTask()) != null)
+                                delegatedTask.run();
+                            busy = true;
+                            break;
+                        }
+                        while ((delegatedTask = engine.getDelegatedTask()) != null) {
+                            pendingTasks.incrementAndGet();
+                            taskExecutor.execute(delegatedTask, pendingTasks::decrementAndGet);
+                        }
+                        // the tasks may have been run by this thread if the queue was full, otherwise
+                        // waiting for them isn't busy, so the event loop can pause rather than spin
+                        if (pendingTasks.get() != 0)
+                            return busy;
+                        busy = true;
+                        break;
+                    }
+                    case FINISHED:
+                    case NOT_HANDSHAKING:
+                        handshakeComplete = true;
+                        flushEncodedData();
+                        final boolean resumed = sessionCache != null
+                                && sessionCache.onHandshakeComplete(engine.getSession(), handshakeStartMillis);
+                        if (LOGGER.isDebugEnabled())
+                            LOGGER.debug("{} handshake complete, resumed: {}", socketToString(channel), resumed);
+                        return true;
+                    default:
+                        // NEED_UNWRAP_AGAIN on Java 9+, the data has already been read
+                        if (!unwrapHandshakeData())
+                            return busy;
+                        busy = true;
+                        break;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return false if more data is needed from the peer
+     */
+    private boolean unwrapHandshakeData() throws IOException {
+        inboundEncodedData.flip();
+        final SSLEngineResult result;
+        try {
+            result = engine.unwrap(inboundEncodedData, precomputedUnwrapArray);
+        } finally {
+            inboundEncodedData.compact();
+        }
+        switch (result.getStatus()) {
+            case OK:
+                return true;
+            case BUFFER_UNDERFLOW:
+                return false;
+            default:
+                throw new IORuntimeException("Unable to unwrap handshake data, status: " + result.getStatus());
+        }
+    }
+
+    /**
+     * @return true if anything was written
+     */
+    private boolean flushEncodedData() throws IOException {
+        if (outboundEncodedData.position() == 0)
+            return false;
+        outboundEncodedData.flip();
+        try {
+            return bufferHandler.writeData(outboundEncodedData) > 0;
+        } finally {
+            outboundEncodedData.compact();
+        }
+    }
+
+    private static String socketToString(final ChronicleSocketChannel channel) {
+        return channel.socket().getLocalPort() + "->" +
+                ((InetSocketAddress) channel.socket().getRemoteSocketAddress()).getPort();
+    }
+
+    boolean isHandshakeComplete() {
+        return handshakeComplete;
+    }
+
+    /**
+     * stops <code>action</code> doing anything more, this can be called from any thread. The buffers are kept until
+     * {@link #release()}, as <code>action</code> may still be using them.
+     */
     void close() {
-        engine.closeOutbound();
+        closed = true;
+    }
+
+    /**
+     * closes the engine and returns its buffers to the pool, called by the thread which calls <code>action</code>
+     * once it has stopped
+     */
+    void release() {
+        closed = true;
+        if (released)
+            return;
+        released = true;
+        if (engine != null)
+            engine.closeOutbound();
+
+        release(outboundApplicationData);
+        release(outboundEncodedData);
+        release(inboundApplicationData);
+        release(inboundEncodedData);
+        outboundApplicationData = outboundEncodedData = inboundApplicationData = inboundEncodedData = null;
+        precomputedWrapArray = precomputedUnwrapArray = null;
+    }
+
+    private void release(@Nullable final ByteBuffer buffer) {
+        if (buffer != null)
+            bufferPool.release(buffer);
     }
-}
\ No newline at end of file
+}
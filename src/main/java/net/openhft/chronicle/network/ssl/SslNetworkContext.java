@@ -1,10 +1,61 @@
 package net.openhft.chronicle.network.ssl;
 
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.threads.EventLoop;
 import net.openhft.chronicle.network.NetworkContext;
+import org.jetbrains.annotations.Nullable;
 
 import javax.net.ssl.SSLContext;
 
 public interface SslNetworkContext<T extends NetworkContext<T>>
         extends NetworkContext<T> {
     SSLContext sslContext();
-}
\ No newline at end of file
+
+    /**
+     * @return the executor to run the handshake's delegated tasks on, or null to run them on the event loop
+     */
+    @Nullable
+    default DelegatedTaskExecutor delegatedTaskExecutor() {
+        return DelegatedTaskExecutor.shared();
+    }
+
+    /**
+     * @return where to record whether handshakes resumed a session, or null not to
+     */
+    @Nullable
+    default SslSessionCache sslSessionCache() {
+        return SslSessionCache.shared();
+    }
+
+    /**
+     * @return the number of bytes of output to wait for before they are encrypted, so small writes share a record,
+     * or 0 to encrypt them on every poll
+     */
+    default int sslCoalesceBytes() {
+        return Integer.getInteger("ssl.coalesce.bytes", 0);
+    }
+
+    /**
+     * @return the longest output is held waiting for {@link #sslCoalesceBytes()}
+     */
+    default long sslCoalesceDelayNanos() {
+        return Long.getLong("ssl.coalesce.delay.us", 100) * 1000;
+    }
+
+    /**
+     * @return true to send records which fit in one packet when the connection starts or has been idle, then full
+     * sized records once a steady stream of data is being sent
+     */
+    default boolean sslDynamicRecordSizing() {
+        return Jvm.getBoolean("ssl.dynamicRecordSizing");
+    }
+
+    /**
+     * @return an event loop to encrypt and decrypt on, leaving the connection's own event loop to read and write the
+     * socket, or null to do both on the connection's event loop
+     */
+    @Nullable
+    default EventLoop sslPipelineEventLoop() {
+        return null;
+    }
+}
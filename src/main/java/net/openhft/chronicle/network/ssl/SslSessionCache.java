@@ -0,0 +1,69 @@
+package net.openhft.chronicle.network.ssl;
+
+import org.jetbrains.annotations.NotNull;
+
+import javax.net.ssl.SSLSession;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks whether SSL handshakes resumed an earlier session.
+ * <p>
+ * The sessions themselves are cached by the {@link javax.net.ssl.SSLContext}, keyed by the peer's host and port, which
+ * is why client engines are created with the address they are connecting to. A resumed session was created by an
+ * earlier handshake, whereas a full handshake creates a new one. The session id is not used, as under TLS 1.3 it is
+ * only there for compatibility and says nothing about resumption.
+ */
+public final class SslSessionCache {
+    private static final SslSessionCache SHARED = new SslSessionCache();
+
+    private final AtomicLong resumedHandshakes = new AtomicLong();
+    private final AtomicLong fullHandshakes = new AtomicLong();
+
+    /**
+     * @return the cache used by default
+     */
+    @NotNull
+    public static SslSessionCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * records a completed handshake
+     *
+     * @param session              the session the handshake established
+     * @param handshakeStartMillis when the handshake began
+     * @return true if the session was resumed
+     */
+    public boolean onHandshakeComplete(@NotNull final SSLSession session, final long handshakeStartMillis) {
+        // a TLS 1.3 session resumed from a ticket keeps the creation time of the session it was issued by
+        final boolean resumed = session.getCreationTime() < handshakeStartMillis;
+        (resumed ? resumedHandshakes : fullHandshakes).incrementAndGet();
+        return resumed;
+    }
+
+    public long resumedHandshakes() {
+        return resumedHandshakes.get();
+    }
+
+    public long fullHandshakes() {
+        return fullHandshakes.get();
+    }
+
+    /**
+     * @return the fraction of handshakes which resumed a session, or 0 if there have been none
+     */
+    public double hitRate() {
+        final long resumed = resumedHandshakes.get();
+        final long total = resumed + fullHandshakes.get();
+        return total == 0 ? 0 : (double) resumed / total;
+    }
+
+    @Override
+    public String toString() {
+        return "SslSessionCache{" +
+                "resumedHandshakes=" + resumedHandshakes() +
+                ", fullHandshakes=" + fullHandshakes() +
+                ", hitRate=" + hitRate() +
+                '}';
+    }
+}
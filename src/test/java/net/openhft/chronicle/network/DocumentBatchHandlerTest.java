@@ -0,0 +1,142 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentBatchHandlerTest extends NetworkTestCommon {
+
+    @Test
+    public void allDocumentsArePassedInOneBatch() {
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+        final BatchHandler handler = new BatchHandler();
+        try {
+            final Wire wire = WireType.BINARY.apply(in);
+            for (int i = 0; i < 3; i++)
+                wire.writeDocument(false, w -> w.write("value").int32(1));
+            // half a document which should be left for the next poll
+            final long end = in.writePosition();
+            wire.writeDocument(false, w -> w.write("value").int32(2));
+            in.readLimit(end + 6);
+
+            handler.nc(new VanillaNetworkContext());
+            handler.process(in, out, handler.nc());
+
+            assertEquals(1, handler.batches.size());
+            assertEquals(3, (int) handler.batches.get(0));
+            assertEquals(1, handler.writes);
+            assertEquals(end, in.readPosition());
+        } finally {
+            handler.close();
+            in.releaseLast();
+            out.releaseLast();
+        }
+    }
+
+    @Test
+    public void hasNextCanBeCalledRepeatedlyWithoutSkippingADocument() {
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+        final List<Integer> values = new ArrayList<>();
+        final BatchHandler handler = new BatchHandler() {
+            @Override
+            public void onReadBatch(@NotNull DocumentBatch batch, @NotNull WireOut out) {
+                while (batch.hasNext() && batch.hasNext()) {
+                    final DocumentContext dc = batch.next();
+                    // looking ahead leaves the open document to be read
+                    batch.hasNext();
+                    values.add(dc.wire().read("value").int32());
+                }
+            }
+        };
+        try {
+            final Wire wire = WireType.BINARY.apply(in);
+            for (int i = 1; i <= 3; i++) {
+                final int value = i;
+                wire.writeDocument(false, w -> w.write("value").int32(value));
+            }
+            final long end = in.writePosition();
+
+            handler.nc(new VanillaNetworkContext());
+            handler.process(in, out, handler.nc());
+
+            assertEquals("[1, 2, 3]", values.toString());
+            assertEquals(1, handler.writes);
+            assertEquals(end, in.readPosition());
+        } finally {
+            handler.close();
+            in.releaseLast();
+            out.releaseLast();
+        }
+    }
+
+    @Test
+    public void onWriteIsNotCalledWhenNoDocumentIsRead() {
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+        final BatchHandler handler = new BatchHandler() {
+            @Override
+            public void onReadBatch(@NotNull DocumentBatch batch, @NotNull WireOut out) {
+                assertTrue(batch.hasNext());
+            }
+        };
+        try {
+            WireType.BINARY.apply(in).writeDocument(false, w -> w.write("value").int32(1));
+
+            handler.nc(new VanillaNetworkContext());
+            handler.process(in, out, handler.nc());
+
+            assertEquals(0, handler.writes);
+            assertEquals(0, in.readPosition());
+        } finally {
+            handler.close();
+            in.releaseLast();
+            out.releaseLast();
+        }
+    }
+
+    static class BatchHandler extends WireTcpHandler<VanillaNetworkContext> implements DocumentBatchHandler {
+        final List<Integer> batches = new ArrayList<>();
+        int writes;
+
+        BatchHandler() {
+            wireType = WireType.BINARY;
+        }
+
+        @Override
+        public void onReadBatch(@NotNull DocumentBatch batch, @NotNull WireOut out) {
+            int count = 0;
+            for (DocumentContext dc : batch) {
+                assertEquals(1, dc.wire().read("value").int32());
+                count++;
+            }
+            batches.add(count);
+        }
+
+        @Override
+        protected void onRead(@NotNull DocumentContext in, @NotNull WireOut out) {
+            throw new AssertionError("documents should be passed as a batch");
+        }
+
+        @Override
+        protected void onWrite(@NotNull WireOut out) {
+            writes++;
+        }
+
+        @Override
+        protected void onInitialize() {
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DocumentWorkerPoolTest extends NetworkTestCommon {
+    private static final int CIDS = 4;
+    private static final int REQUESTS = 50;
+
+    @Test(timeout = 20_000)
+    public void responsesKeepTheirOrderPerCid() {
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+        final DocumentWorkerPool pool = new DocumentWorkerPool("worker", 3);
+        final OffloadingHandler handler = new OffloadingHandler(pool);
+        try {
+            final Wire wire = WireType.BINARY.apply(in);
+            for (int i = 0; i < REQUESTS; i++) {
+                for (int c = 1; c <= CIDS; c++) {
+                    final int cid = c, value = i;
+                    wire.writeDocument(true, w -> w.write("cid").int64(cid));
+                    wire.writeDocument(false, w -> w.write("cid").int64(cid).write("value").int32(value));
+                }
+            }
+
+            handler.nc(new VanillaNetworkContext());
+            final Wire outWire = WireType.BINARY.apply(out);
+            final int[] next = new int[CIDS + 1];
+            int responses = 0;
+            while (responses < CIDS * REQUESTS) {
+                handler.process(in, out, handler.nc());
+                while (true) {
+                    try (DocumentContext dc = outWire.readingDocument()) {
+                        if (!dc.isPresent())
+                            break;
+                        final int cid = (int) dc.wire().read("cid").int64();
+                        assertEquals(next[cid]++, dc.wire().read("value").int32());
+                        responses++;
+                    }
+                }
+                Jvm.pause(1);
+            }
+        } finally {
+            handler.close();
+            pool.close();
+            in.releaseLast();
+            out.releaseLast();
+        }
+    }
+
+    @Test(timeout = 20_000)
+    public void partitionsAreProcessedConcurrentlyEachWithItsOwnState() {
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+        final DocumentWorkerPool pool = new DocumentWorkerPool("worker", 2);
+        final StatefulHandler handler = new StatefulHandler(pool);
+        try {
+            // two cids processed by different workers
+            final long cid1 = 1;
+            long c = 2;
+            while (pool.worker(c) == pool.worker(cid1))
+                c++;
+            final long cid2 = c;
+
+            final Wire wire = WireType.BINARY.apply(in);
+            for (int i = 0; i < REQUESTS; i++) {
+                for (long cid : new long[]{cid1, cid2}) {
+                    wire.writeDocument(true, w -> w.write("cid").int64(cid));
+                    wire.writeDocument(false, w -> w.write("expected").int64(cid));
+                }
+            }
+
+            handler.nc(new VanillaNetworkContext());
+            final Wire outWire = WireType.BINARY.apply(out);
+            int responses = 0;
+            while (responses < 2 * REQUESTS) {
+                handler.process(in, out, handler.nc());
+                while (true) {
+                    try (DocumentContext dc = outWire.readingDocument()) {
+                        if (!dc.isPresent())
+                            break;
+                        // the cid of the request's meta data, which the other partition didn't overwrite
+                        final long cid = dc.wire().read("cid").int64();
+                        assertEquals(cid, dc.wire().read("expected").int64());
+                        responses++;
+                    }
+                }
+                Jvm.pause(1);
+            }
+            // both workers were in onRead at the same time
+            assertTrue(handler.overlapped);
+        } finally {
+            handler.close();
+            pool.close();
+            in.releaseLast();
+            out.releaseLast();
+        }
+    }
+
+    @Test(timeout = 20_000)
+    public void closeWaitsForTheDocumentsBeingProcessed() throws InterruptedException {
+        final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+        final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+        final DocumentWorkerPool pool = new DocumentWorkerPool("worker", 1);
+        final CountDownLatch reading = new CountDownLatch(1);
+        final AtomicBoolean finished = new AtomicBoolean();
+        final OffloadingHandler handler = new OffloadingHandler(pool) {
+            @Override
+            protected void onRead(@NotNull DocumentContext in, @NotNull WireOut out) {
+                reading.countDown();
+                Jvm.pause(200);
+                super.onRead(in, out);
+                finished.set(true);
+            }
+        };
+        try {
+            WireType.BINARY.apply(in).writeDocument(false, w -> w.write("cid").int64(1).write("value").int32(1));
+            handler.nc(new VanillaNetworkContext());
+            handler.process(in, out, handler.nc());
+            reading.await();
+
+            handler.close();
+            assertTrue(finished.get());
+        } finally {
+            handler.close();
+            pool.close();
+            in.releaseLast();
+            out.releaseLast();
+        }
+    }
+
+    static class OffloadingHandler extends WireTcpHandler<VanillaNetworkContext> implements DocumentWorkerPoolHandler {
+        private final DocumentWorkerPool pool;
+
+        OffloadingHandler(DocumentWorkerPool pool) {
+            this.pool = pool;
+            wireType = WireType.BINARY;
+        }
+
+        @Nullable
+        @Override
+        public DocumentWorkerPool workerPool() {
+            return pool;
+        }
+
+        @Override
+        protected void onRead(@NotNull DocumentContext in, @NotNull WireOut out) {
+            if (in.isMetaData())
+                return;
+            final long cid = in.wire().read("cid").int64();
+            final int value = in.wire().read("value").int32();
+            // make the work take a varying amount of time
+            if (value % 7 == 0)
+                Jvm.pause(1);
+            out.writeDocument(false, w -> w.write("cid").int64(cid).write("value").int32(value));
+        }
+
+        @Override
+        protected void onInitialize() {
+        }
+    }
+
+    /**
+     * keeps the cid of each meta data document for the data document after it, per worker thread, as each partition
+     * is processed by one worker
+     */
+    static final class StatefulHandler extends WireTcpHandler<VanillaNetworkContext> implements DocumentWorkerPoolHandler {
+        private final DocumentWorkerPool pool;
+        private final ThreadLocal<long[]> lastCid = ThreadLocal.withInitial(() -> new long[1]);
+        private final AtomicInteger reading = new AtomicInteger();
+        volatile boolean overlapped;
+
+        StatefulHandler(DocumentWorkerPool pool) {
+            this.pool = pool;
+            wireType = WireType.BINARY;
+        }
+
+        @Nullable
+        @Override
+        public DocumentWorkerPool workerPool() {
+            return pool;
+        }
+
+        @Override
+        protected void onRead(@NotNull DocumentContext in, @NotNull WireOut out) {
+            if (in.isMetaData()) {
+                lastCid.get()[0] = in.wire().read("cid").int64();
+                return;
+            }
+            if (reading.incrementAndGet() > 1)
+                overlapped = true;
+            try {
+                final long expected = in.wire().read("expected").int64();
+                // give the other partition a chance to run at the same time
+                Jvm.pause(1);
+                out.writeDocument(false, w -> w.write("cid").int64(lastCid.get()[0]).write("expected").int64(expected));
+            } finally {
+                reading.decrementAndGet();
+            }
+        }
+
+        @Override
+        protected void onInitialize() {
+        }
+    }
+}
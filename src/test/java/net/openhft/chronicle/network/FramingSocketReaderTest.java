@@ -0,0 +1,37 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FramingSocketReaderTest extends NetworkTestCommon {
+
+    @Test
+    public void indexesCompleteFramesOnly() {
+        final Bytes<?> bytes = Bytes.allocateElasticDirect();
+        try {
+            bytes.writeInt(8).writeLong(1);
+            bytes.writeInt(0x40000000 | 4).writeInt(2); // meta data
+            bytes.writeInt(16).writeLong(3); // only half of this frame has arrived
+
+            final FramingSocketReader reader = new FramingSocketReader();
+            reader.index(bytes, 0, bytes.writePosition());
+
+            assertEquals(2, reader.frames());
+            assertEquals(0, reader.offset(0));
+            assertEquals(8, reader.length(0));
+            assertEquals(12, reader.offset(1));
+            assertEquals(4, reader.length(1));
+            assertEquals(0x40000000 | 4, reader.header(1));
+            assertEquals(20, reader.incompleteOffset());
+
+            // skipping the first frame leaves one to index
+            reader.index(bytes, 12, 20);
+            assertEquals(1, reader.frames());
+            assertEquals(-1, reader.incompleteOffset());
+        } finally {
+            bytes.releaseLast();
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.network.connection.VanillaWireOutPublisher;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class MethodTcpHandlerTest extends NetworkTestCommon {
+
+    private final Bytes<ByteBuffer> in = Bytes.elasticByteBuffer();
+    private final Bytes<ByteBuffer> out = Bytes.elasticByteBuffer();
+    private final Greeter greeter = new Greeter();
+    private MethodTcpHandler handler;
+
+    @Before
+    public void setUp() {
+        handler = new MethodTcpHandler<>(() -> greeter, Replies.class, r -> {
+        });
+        handler.wireType(WireType.TEXT);
+        handler.nc(new VanillaNetworkContext());
+    }
+
+    @After
+    public void tearDown() {
+        handler.close();
+        in.releaseLast();
+        out.releaseLast();
+    }
+
+    @Test
+    public void repliesWithTheTidOnceTheFutureCompletes() {
+        request(123, "world");
+        assertEquals(1, greeter.futures.size());
+        assertEquals(0, out.readRemaining());
+
+        greeter.futures.get(0).complete("hello world");
+        handler.process(in, out, handler.nc());
+
+        final Wire wire = WireType.TEXT.apply(out);
+        assertEquals(123, readTid(wire));
+        try (DocumentContext dc = wire.readingDocument()) {
+            assertFalse(dc.isMetaData());
+            assertEquals("hello world", dc.wire().read("reply").text());
+        }
+    }
+
+    @Test
+    public void repliesWithTheExceptionIfTheFutureFails() {
+        request(7, "world");
+        greeter.futures.get(0).completeExceptionally(new IllegalArgumentException("no greeting"));
+        handler.process(in, out, handler.nc());
+
+        final Wire wire = WireType.TEXT.apply(out);
+        assertEquals(7, readTid(wire));
+        try (DocumentContext dc = wire.readingDocument()) {
+            final Throwable thrown = dc.wire().read("exception").throwable(false);
+            assertTrue(thrown instanceof IllegalArgumentException);
+            assertEquals("no greeting", thrown.getMessage());
+        }
+    }
+
+    @Test
+    public void repliesWithoutATidIfTheRequestHadNone() {
+        request(0, "world");
+        greeter.futures.get(0).complete("hello world");
+        handler.process(in, out, handler.nc());
+
+        final Wire wire = WireType.TEXT.apply(out);
+        try (DocumentContext dc = wire.readingDocument()) {
+            assertFalse(dc.isMetaData());
+            assertEquals("hello world", dc.wire().read("reply").text());
+        }
+        assertEquals(0, out.readRemaining());
+    }
+
+    @Test
+    public void theMetaDataWithTheTidIsNotPassedOnAsACall() {
+        request(42, "world");
+        assertEquals(0, greeter.tidCalls);
+    }
+
+    @Test
+    public void aReplyCompletedAfterTheRequestWasHandledWakesTheWriter() {
+        final VanillaWireOutPublisher publisher = new VanillaWireOutPublisher(WireType.TEXT);
+        try {
+            final AtomicInteger published = new AtomicInteger();
+            publisher.onPublish(published::incrementAndGet);
+            handler.publisher(publisher);
+
+            request(9, "later");
+            assertEquals(0, published.get());
+
+            // e.g. on another thread, once the event loop has moved on
+            greeter.futures.get(0).complete("hello later");
+            assertEquals(1, published.get());
+
+            handler.process(in, out, handler.nc());
+            final Wire wire = WireType.TEXT.apply(out);
+            assertEquals(9, readTid(wire));
+            try (DocumentContext dc = wire.readingDocument()) {
+                assertEquals("hello later", dc.wire().read("reply").text());
+            }
+        } finally {
+            publisher.close();
+        }
+    }
+
+    /**
+     * sends a greet request, with a tid unless it is 0
+     */
+    private void request(final long tid, final String name) {
+        final Wire wire = WireType.TEXT.apply(in);
+        if (tid != 0)
+            wire.writeDocument(true, w -> w.write("tid").int64(tid));
+        wire.writeDocument(false, w -> w.write("greet").text(name));
+        handler.process(in, out, handler.nc());
+        assertEquals(0, in.readRemaining());
+    }
+
+    private static long readTid(final Wire wire) {
+        try (DocumentContext dc = wire.readingDocument()) {
+            assertTrue(dc.isMetaData());
+            return dc.wire().read("tid").int64();
+        }
+    }
+
+    public interface Greeting {
+        CompletableFuture<String> greet(String name);
+
+        void tid(long tid);
+    }
+
+    public interface Replies {
+    }
+
+    static final class Greeter implements Greeting {
+        final List<CompletableFuture<String>> futures = new ArrayList<>();
+        int tidCalls;
+
+        @Override
+        public CompletableFuture<String> greet(final String name) {
+            final CompletableFuture<String> future = new CompletableFuture<>();
+            futures.add(future);
+            return future;
+        }
+
+        @Override
+        public void tid(final long tid) {
+            tidCalls++;
+        }
+    }
+}
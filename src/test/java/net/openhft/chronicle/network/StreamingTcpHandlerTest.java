@@ -0,0 +1,108 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.network.api.StreamingTcpHandler;
+import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.openhft.chronicle.network.api.StreamingTcpHandler.Chunk.*;
+import static org.junit.Assert.assertEquals;
+
+public class StreamingTcpHandlerTest extends NetworkTestCommon {
+    private static final String hostPort = "host.port";
+    private static final int LENGTH = 32 << 10;
+
+    @Before
+    public void setUp() throws IOException {
+        TCPRegistry.createServerSocketChannelFor(hostPort);
+    }
+
+    @Test(timeout = 20_000)
+    public void oversizedDocumentIsDeliveredInChunks() throws Exception {
+        final NetworkContext nc = new VanillaNetworkContext();
+        nc.socketChannel(TCPRegistry.createSocketChannel(hostPort));
+        final RecordingHandler handler = new RecordingHandler();
+        final TcpEventHandler tcpEventHandler = new TcpEventHandler(nc);
+        try (ChronicleSocketChannel server = TCPRegistry.acquireServerSocketChannel(hostPort).accept()) {
+            tcpEventHandler.tcpHandler(handler);
+
+            final ByteBuffer bb = ByteBuffer.allocate(12 + 4 + LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            bb.putInt(8).putLong(128);
+            bb.putInt(LENGTH);
+            for (int i = 0; i < LENGTH; i++)
+                bb.put((byte) i);
+            bb.flip();
+
+            // send the first half, then the rest once the handler has seen the start
+            bb.limit(bb.capacity() / 2);
+            while (bb.hasRemaining())
+                server.write(bb);
+            while (handler.chunks.isEmpty())
+                tcpEventHandler.action();
+
+            bb.limit(bb.capacity());
+            while (bb.hasRemaining())
+                server.write(bb);
+            while (!handler.chunks.contains(END))
+                tcpEventHandler.action();
+
+            assertEquals(1, handler.documents);
+            assertEquals(BEGIN, handler.chunks.get(0));
+            assertEquals(END, handler.chunks.get(handler.chunks.size() - 1));
+            assertEquals(4 + LENGTH, handler.streamed.readRemaining());
+            assertEquals(LENGTH, handler.streamed.readInt());
+            for (int i = 0; i < LENGTH; i++)
+                assertEquals((byte) i, handler.streamed.readByte());
+
+        } finally {
+            tcpEventHandler.close();
+            tcpEventHandler.loopFinished();
+            handler.streamed.releaseLast();
+        }
+    }
+
+    static final class RecordingHandler implements StreamingTcpHandler {
+        final Bytes<?> streamed = Bytes.allocateElasticDirect();
+        final List<Chunk> chunks = new ArrayList<>();
+        int documents;
+
+        @Override
+        public int streamingThreshold() {
+            return 1024;
+        }
+
+        @Override
+        public void process(@NotNull Bytes in, @NotNull Bytes out, NetworkContext nc) {
+            while (in.readRemaining() >= 4) {
+                final int length = in.readInt(in.readPosition());
+                if (in.readRemaining() < 4 + length)
+                    return;
+                in.readSkip(4 + length);
+                documents++;
+            }
+        }
+
+        @Override
+        public void onChunk(@NotNull Bytes in, @NotNull Bytes out, NetworkContext nc, @NotNull Chunk chunk) {
+            chunks.add(chunk);
+            streamed.write(in);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isClosed() {
+            return false;
+        }
+    }
+}
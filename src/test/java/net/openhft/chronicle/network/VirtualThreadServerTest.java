@@ -0,0 +1,168 @@
+package net.openhft.chronicle.network;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.AbstractCloseable;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.network.api.TcpHandler;
+import net.openhft.chronicle.network.connection.VanillaWireOutPublisher;
+import net.openhft.chronicle.network.connection.WireOutPublisher;
+import net.openhft.chronicle.threads.EventGroup;
+import net.openhft.chronicle.wire.WireType;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+public class VirtualThreadServerTest extends NetworkTestCommon {
+    private static final String hostPort = "host.port";
+
+    private static long echo(@NotNull SocketChannel client, long value) throws IOException {
+        final ByteBuffer bb = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+        bb.putLong(0, value);
+        while (bb.hasRemaining())
+            client.write(bb);
+        bb.clear();
+        while (bb.hasRemaining())
+            if (client.read(bb) < 0)
+                throw new IOException("closed");
+        return bb.getLong(0);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Test(timeout = 20_000)
+    public void aBlockedHandlerOnlyHoldsUpItsOwnConnection() throws Exception {
+        TCPRegistry.createServerSocketChannelFor(hostPort);
+        final CountDownLatch secondReplied = new CountDownLatch(1);
+
+        final AcceptorEventHandler acceptor = new AcceptorEventHandler(hostPort,
+                nc -> {
+                    final TcpEventHandler handler = new TcpEventHandler((NetworkContext) nc);
+                    handler.tcpHandler(new BlockingEchoHandler(secondReplied));
+                    return handler;
+                },
+                () -> new VanillaNetworkContext().serverThreadingStrategy(ServerThreadingStrategy.VIRTUAL_THREAD));
+
+        try (EventLoop eg = new EventGroup(true)) {
+            eg.addHandler(acceptor);
+            eg.start();
+
+            try (SocketChannel first = SocketChannel.open(TCPRegistry.lookup(hostPort));
+                 SocketChannel second = SocketChannel.open(TCPRegistry.lookup(hostPort))) {
+
+                // the first connection's handler waits for the second connection's reply
+                final ByteBuffer bb = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+                bb.putLong(0, 1);
+                while (bb.hasRemaining())
+                    first.write(bb);
+
+                assertEquals(2, echo(second, 2));
+                secondReplied.countDown();
+
+                bb.clear();
+                while (bb.hasRemaining())
+                    if (first.read(bb) < 0)
+                        throw new IOException("closed");
+                assertEquals(1, bb.getLong(0));
+            }
+        } finally {
+            Closeable.closeQuietly(acceptor);
+            // the connection threads release their buffers as they finish
+            while (acceptor.connectionThreads() > 0)
+                Jvm.pause(1);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    @Test(timeout = 20_000)
+    public void publishedOutputIsWrittenWhileTheReadBlocks() throws Exception {
+        TCPRegistry.createServerSocketChannelFor(hostPort);
+        final BlockingQueue<WireOutPublisher> publishers = new ArrayBlockingQueue<>(1);
+
+        final AcceptorEventHandler acceptor = new AcceptorEventHandler(hostPort,
+                nc -> {
+                    final NetworkContext networkContext = (NetworkContext) nc;
+                    final WireOutPublisher publisher = new VanillaWireOutPublisher(WireType.BINARY);
+                    networkContext.wireOutPublisher(publisher);
+                    publishers.add(publisher);
+                    final TcpEventHandler handler = new TcpEventHandler(networkContext);
+                    handler.tcpHandler(new PublishingHandler());
+                    return handler;
+                },
+                () -> new VanillaNetworkContext().serverThreadingStrategy(ServerThreadingStrategy.VIRTUAL_THREAD));
+
+        try (EventLoop eg = new EventGroup(true)) {
+            eg.addHandler(acceptor);
+            eg.start();
+
+            try (SocketChannel client = SocketChannel.open(TCPRegistry.lookup(hostPort))) {
+                // nothing is sent, so the connection's thread is blocked reading
+                final WireOutPublisher publisher = publishers.take();
+                publisher.put(null, w -> w.bytes().writeLong(42));
+
+                final ByteBuffer bb = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder());
+                while (bb.hasRemaining())
+                    if (client.read(bb) < 0)
+                        throw new IOException("closed");
+                assertEquals(42, bb.getLong(0));
+
+                // and it still replies to what is read
+                assertEquals(7, echo(client, 7));
+            }
+        } finally {
+            Closeable.closeQuietly(acceptor);
+            while (acceptor.connectionThreads() > 0)
+                Jvm.pause(1);
+        }
+    }
+
+    static final class PublishingHandler extends AbstractCloseable implements TcpHandler {
+
+        @Override
+        public void process(@NotNull Bytes in, @NotNull Bytes out, NetworkContext nc) {
+            while (in.readRemaining() >= 8)
+                out.writeLong(in.readLong());
+            nc.wireOutPublisher().applyAction(out);
+        }
+
+        @Override
+        protected void performClose() {
+        }
+    }
+
+    static final class BlockingEchoHandler extends AbstractCloseable implements TcpHandler {
+        private final CountDownLatch latch;
+
+        BlockingEchoHandler(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void process(@NotNull Bytes in, @NotNull Bytes out, NetworkContext nc) {
+            while (in.readRemaining() >= 8) {
+                final long value = in.readLong();
+                if (value == 1)
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                out.writeLong(value);
+            }
+        }
+
+        @Override
+        protected void performClose() {
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncRequestTest extends NetworkTestCommon {
+
+    @Test
+    public void completesWithTheDecodedReply() throws Exception {
+        final AtomicInteger done = new AtomicInteger();
+        final AsyncRequest<Long> request = new AsyncRequest<>(1, in -> in.read("reply").int64(), null, done::incrementAndGet);
+        request.startTimeout(10_000);
+
+        final Wire wire = WireType.BINARY.apply(Bytes.elasticByteBuffer());
+        try {
+            wire.writeDocument(false, w -> w.write("reply").int64(42));
+            request.onConsumer(wire);
+        } finally {
+            wire.bytes().releaseLast();
+        }
+
+        assertEquals(42L, (long) request.get(1, TimeUnit.SECONDS));
+        request.onClose();
+        assertEquals(1, done.get());
+    }
+
+    @Test
+    public void rejectsAReplyWhichIsntData() {
+        final AsyncRequest<Long> request = new AsyncRequest<>(3, in -> 0L, null, () -> {
+        });
+        final Wire wire = WireType.BINARY.apply(Bytes.elasticByteBuffer());
+        try {
+            wire.writeDocument(true, w -> w.write("tid").int64(3));
+            request.onConsumer(wire);
+        } finally {
+            wire.bytes().releaseLast();
+        }
+        assertTrue(request.isCompletedExceptionally());
+    }
+
+    @Test
+    public void timesOut() throws Exception {
+        final AtomicInteger done = new AtomicInteger();
+        final AsyncRequest<Long> request = new AsyncRequest<>(2, in -> 0L, null, done::incrementAndGet);
+        request.startTimeout(10);
+        try {
+            request.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, done.get());
+    }
+}
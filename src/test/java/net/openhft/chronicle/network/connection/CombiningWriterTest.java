@@ -0,0 +1,86 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.wire.WireType;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.Assert.*;
+
+public class CombiningWriterTest extends NetworkTestCommon {
+
+    @Test
+    public void writesEveryMessageFromManyThreadsInOrderAndCombined() throws Exception {
+        final int threads = 4;
+        final int messages = 10_000;
+        final CountDownLatch started = new CountDownLatch(threads);
+        // only used by the thread holding the lock
+        final int[] next = new int[threads];
+        final long[] writes = {0};
+        final long[] received = {0};
+        final AtomicReference<String> error = new AtomicReference<>();
+        final CombiningWriter writer = new CombiningWriter(new ReentrantLock(), buffers -> {
+            if (writes[0]++ == 0) {
+                // hold up the first write so the other threads queue behind it
+                try {
+                    started.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                Jvm.pause(50);
+            }
+            for (ByteBuffer buffer : buffers) {
+                final ByteBuffer bb = buffer.duplicate().order(ByteOrder.nativeOrder());
+                while (bb.remaining() >= 8) {
+                    final long value = bb.getLong();
+                    final int thread = (int) (value >>> 32);
+                    final int i = (int) value;
+                    if (next[thread]++ != i)
+                        error.compareAndSet(null, "thread " + thread + " expected " + (next[thread] - 1) + " was " + i);
+                    received[0]++;
+                }
+                if (bb.hasRemaining())
+                    error.compareAndSet(null, "partial message of " + bb.remaining() + " bytes");
+                buffer.position(buffer.limit());
+            }
+        }, WireType.BINARY);
+
+        final ExecutorService service = Executors.newFixedThreadPool(threads);
+        try {
+            final Future<?>[] futures = new Future[threads];
+            for (int t = 0; t < threads; t++) {
+                final long thread = t;
+                futures[t] = service.submit(() -> {
+                    started.countDown();
+                    for (int i = 0; i < messages; i++) {
+                        final long value = (thread << 32) | i;
+                        writer.write(w -> w.bytes().writeLong(value));
+                    }
+                });
+            }
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        } finally {
+            service.shutdownNow();
+            service.awaitTermination(5, TimeUnit.SECONDS);
+            writer.close();
+        }
+
+        assertNull(error.get());
+        assertEquals((long) threads * messages, received[0]);
+        for (int t = 0; t < threads; t++)
+            assertEquals(messages, next[t]);
+        // the threads queued behind the first write were written together
+        assertTrue("writes=" + writes[0], writes[0] < (long) threads * messages);
+    }
+}
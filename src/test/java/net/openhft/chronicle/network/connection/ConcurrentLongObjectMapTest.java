@@ -0,0 +1,77 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.network.NetworkTestCommon;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentLongObjectMapTest extends NetworkTestCommon {
+
+    @Test
+    public void putGetRemove() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(8);
+        assertNull(map.put(1, "one"));
+        assertNull(map.put(-2, "minus two"));
+        assertEquals("one", map.put(1, "uno"));
+        assertEquals("uno", map.get(1));
+        assertEquals("minus two", map.get(-2));
+        assertNull(map.get(3));
+        assertEquals(2, map.size());
+
+        assertEquals("uno", map.remove(1));
+        assertNull(map.remove(1));
+        assertNull(map.get(1));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void removesOnlyIfMappedToTheValue() {
+        final ConcurrentLongObjectMap<String> map = new ConcurrentLongObjectMap<>(8);
+        final String one = "one";
+        map.put(1, one);
+        assertFalse(map.remove(1, new String(one)));
+        assertFalse(map.remove(2, one));
+        assertSame(one, map.get(1));
+
+        assertTrue(map.remove(1, one));
+        assertNull(map.get(1));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    public void monotonicKeysWithRemovals() {
+        final ConcurrentLongObjectMap<Long> map = new ConcurrentLongObjectMap<>(8);
+        final long start = System.nanoTime();
+        // like tids, most are removed soon after they are added
+        for (long tid = start; tid < start + 100_000; tid++) {
+            map.put(tid, tid);
+            if (tid - start >= 10)
+                assertEquals(tid - 10, (long) map.remove(tid - 10));
+        }
+        assertEquals(10, map.size());
+        for (long tid = start + 100_000 - 10; tid < start + 100_000; tid++)
+            assertEquals(tid, (long) map.get(tid));
+    }
+
+    @Test
+    public void removeIfAndForEach() {
+        final ConcurrentLongObjectMap<Integer> map = new ConcurrentLongObjectMap<>(8);
+        for (int i = 1; i <= 100; i++)
+            map.put(i, i);
+        map.removeIf(v -> v % 2 == 0);
+        assertEquals(50, map.size());
+
+        final List<Integer> values = new ArrayList<>();
+        map.forEachValue(values::add);
+        assertEquals(50, values.size());
+        assertTrue(values.stream().allMatch(v -> v % 2 == 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroIsReserved() {
+        new ConcurrentLongObjectMap<String>(8).put(0, "zero");
+    }
+}
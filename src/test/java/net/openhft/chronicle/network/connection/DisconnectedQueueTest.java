@@ -0,0 +1,62 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+public class DisconnectedQueueTest extends NetworkTestCommon {
+
+    @Test
+    public void queuesInOrderUpToTheLimit() {
+        final DisconnectedQueue queue = new DisconnectedQueue(16);
+        final Bytes<?> message = Bytes.elasticByteBuffer();
+        final Bytes<?> out = Bytes.elasticByteBuffer();
+        try {
+            assertTrue(queue.isEmpty());
+            assertTrue(queue.offer(message.writeLong(1)));
+            message.clear();
+            assertTrue(queue.offer(message.writeLong(2)));
+            message.clear();
+            // no room for a third
+            assertFalse(queue.offer(message.writeLong(3)));
+
+            queue.copyTo(out);
+            assertEquals(1, out.readLong());
+            assertEquals(2, out.readLong());
+            assertEquals(0, out.readRemaining());
+
+            queue.clear();
+            assertTrue(queue.isEmpty());
+        } finally {
+            queue.release();
+            message.releaseLast();
+            out.releaseLast();
+        }
+    }
+
+    @Test
+    public void queuesAllTheBuffersOrNone() {
+        final DisconnectedQueue queue = new DisconnectedQueue(16);
+        final Bytes<?> out = Bytes.elasticByteBuffer();
+        try {
+            final ByteBuffer one = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder()).putLong(0, 1);
+            final ByteBuffer two = ByteBuffer.allocate(8).order(ByteOrder.nativeOrder()).putLong(0, 2);
+            assertTrue(queue.offer(new ByteBuffer[]{one, two}));
+            // no room for either
+            assertFalse(queue.offer(new ByteBuffer[]{ByteBuffer.allocate(0), ByteBuffer.allocate(8)}));
+
+            queue.copyTo(out);
+            assertEquals(1, out.readLong());
+            assertEquals(2, out.readLong());
+            assertEquals(0, out.readRemaining());
+        } finally {
+            queue.release();
+            out.releaseLast();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.AbstractReferenceCounted;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import net.openhft.chronicle.network.AcceptorEventHandler;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.VanillaNetworkContext;
+import net.openhft.chronicle.threads.EventGroup;
+import net.openhft.chronicle.wire.TextWire;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.performance.tests.network.LegacyHanderFactory;
+import net.openhft.performance.tests.network.WireEchoRequestHandler;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static net.openhft.chronicle.network.connection.SocketAddressSupplier.uri;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class EventLoopReadsTest extends NetworkTestCommon {
+    private static final String hostPort = "host.port";
+    private static final String NAME = "/eventLoopReads-";
+
+    private EventLoop eg;
+    private final TcpChannelHub[] hubs = new TcpChannelHub[2];
+
+    @Before
+    public void setUp() throws IOException {
+        // TODO FIX, as in SimpleServerAndClientTest
+        AbstractReferenceCounted.disableReferenceTracing();
+
+        TCPRegistry.createServerSocketChannelFor(hostPort);
+        eg = new EventGroup(true);
+        eg.start();
+        eg.addHandler(new AcceptorEventHandler(hostPort,
+                LegacyHanderFactory.simpleTcpEventHandlerFactory(WireEchoRequestHandler::new, WireType.TEXT),
+                VanillaNetworkContext::new));
+
+        System.setProperty("tcp.client.eventLoopReads", "true");
+        try {
+            for (int i = 0; i < hubs.length; i++)
+                hubs[i] = new TcpChannelHub(null, eg, WireType.TEXT, NAME + i, uri(hostPort), false, null,
+                        HandlerPriority.TIMER, new FatalFailureConnectionStrategy(3, false));
+        } finally {
+            System.clearProperty("tcp.client.eventLoopReads");
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Closeable.closeQuietly(hubs);
+        eg.stop();
+        eg.close();
+        TcpChannelHub.closeAllHubs();
+    }
+
+    private static void send(@NotNull final TcpChannelHub hub, final long tid, @NotNull final String payload) {
+        final Bytes<ByteBuffer> bytes = Bytes.elasticByteBuffer();
+        try {
+            final Wire wire = new TextWire(bytes).useTextDocuments();
+            wire.writeDocument(true, w -> w.write("tid").int64(tid));
+            wire.writeDocument(false, w -> w.write("payload").text(payload));
+            hub.lock2(() -> hub.outWire().bytes().write(bytes), true, TryLock.LOCK);
+        } finally {
+            bytes.releaseLast();
+        }
+    }
+
+    @Test(timeout = 20_000)
+    public void hubsSharingAnEventLoopReadTheirRepliesOnIt() throws Exception {
+        for (int i = 0; i < hubs.length; i++) {
+            final TcpChannelHub hub = hubs[i];
+            final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+            send(hub, tid, "hello" + i);
+
+            final Wire reply = hub.proxyReply(5_000, tid);
+            final String[] text = {null};
+            reply.readDocument(null, data -> text[0] = data.read("payloadResponse").text());
+            assertEquals("hello" + i, text[0]);
+        }
+
+        // neither hub started a read thread of its own
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            assertFalse(thread.getName(), thread.getName().startsWith("TcpChannelHub-Reads-" + NAME));
+    }
+}
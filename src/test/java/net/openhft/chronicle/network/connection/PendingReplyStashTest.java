@@ -0,0 +1,78 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.wire.WireType;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PendingReplyStashTest extends NetworkTestCommon {
+
+    @Test
+    public void handsOverEarlyRepliesInOrder() {
+        final ConcurrentLongObjectMap<Object> map = new ConcurrentLongObjectMap<>(8);
+        final PendingReplyStash stash = new PendingReplyStash(map);
+        final List<Long> delivered = new ArrayList<>();
+        final PendingReplyStash.ReplyConsumer consumer = (tid, o, header, b) -> delivered.add(b.readLong());
+        final Bytes<?> body = Bytes.elasticByteBuffer();
+        try {
+            assertTrue(stash.isEmpty());
+            body.writeLong(1);
+            assertNull(stash.stashOrGet(10, 8, body, consumer));
+            body.clear().writeLong(2);
+            assertNull(stash.stashOrGet(10, 8, body, consumer));
+            assertFalse(stash.isEmpty());
+
+            // still stashed, as earlier replies are waiting to be claimed
+            final Object subscriber = new Object();
+            map.put(10, subscriber);
+            body.clear().writeLong(3);
+            assertNull(stash.stashOrGet(10, 8, body, consumer));
+
+            // left for the read thread to deliver
+            stash.claim(10, subscriber, consumer);
+            assertEquals("[]", delivered.toString());
+            assertFalse(stash.isEmpty());
+
+            // which it does before the next reply
+            body.clear().writeLong(4);
+            assertSame(subscriber, stash.stashOrGet(10, 8, body, consumer));
+            assertEquals("[1, 2, 3]", delivered.toString());
+            assertTrue(stash.isEmpty());
+        } finally {
+            body.releaseLast();
+            stash.clear();
+        }
+    }
+
+    @Test
+    public void aReplySlotClaimsOnTheRegisteringThread() {
+        final ConcurrentLongObjectMap<Object> map = new ConcurrentLongObjectMap<>(8);
+        final PendingReplyStash stash = new PendingReplyStash(map);
+        final List<Long> delivered = new ArrayList<>();
+        final ReplyBufferPool pool = new ReplyBufferPool(WireType.BINARY);
+        final Bytes<?> body = Bytes.elasticByteBuffer();
+        try {
+            body.writeLong(1);
+            assertNull(stash.stashOrGet(10, 8, body, (tid, o, header, b) -> fail()));
+
+            final ReplySlot slot = new ReplySlot(pool);
+            map.put(10, slot);
+            stash.claim(10, slot, (tid, o, header, b) -> {
+                // the header is kept in front of the body
+                assertEquals(8, b.readInt(b.readPosition() - 4));
+                delivered.add(b.readLong());
+            });
+            assertEquals("[1]", delivered.toString());
+            assertTrue(stash.isEmpty());
+        } finally {
+            body.releaseLast();
+            stash.clear();
+            pool.close();
+        }
+    }
+}
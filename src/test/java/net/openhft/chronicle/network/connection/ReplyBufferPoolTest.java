@@ -0,0 +1,38 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReplyBufferPoolTest extends NetworkTestCommon {
+
+    @Test
+    public void reusesBuffersBySizeClass() {
+        assertEquals(0, ReplyBufferPool.sizeClass(1));
+        assertEquals(0, ReplyBufferPool.sizeClass(ReplyBufferPool.MIN_SIZE));
+        assertEquals(1, ReplyBufferPool.sizeClass(ReplyBufferPool.MIN_SIZE + 1));
+
+        final ReplyBufferPool pool = new ReplyBufferPool(WireType.BINARY);
+        try {
+            final Wire small = pool.acquire(100);
+            final Wire large = pool.acquire(100_000);
+            assertEquals(2, pool.leases());
+            assertTrue(large.bytes().realCapacity() >= 100_000);
+            pool.release(small);
+            pool.release(large);
+            assertEquals(0, pool.leases());
+            assertEquals(2, pool.peakLeases());
+
+            assertSame(small, pool.acquire(200));
+            assertSame(large, pool.acquire(120_000));
+            assertEquals(2, pool.created());
+            pool.release(small);
+            pool.release(large);
+        } finally {
+            pool.close();
+        }
+    }
+}
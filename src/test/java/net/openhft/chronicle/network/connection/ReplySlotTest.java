@@ -0,0 +1,88 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireType;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ReplySlotTest extends NetworkTestCommon {
+
+    @Test
+    public void wakesAParkedWaiter() throws InterruptedException {
+        final ReplyBufferPool pool = new ReplyBufferPool(WireType.BINARY);
+        try {
+            final ReplySlot slot = new ReplySlot(pool);
+            slot.reset(1);
+            final Thread reader = new Thread(() -> {
+                // long enough for the waiter to have given up spinning
+                Jvm.pause(50);
+                final Wire reply = slot.acquireReply(4);
+                reply.bytes().writeInt(1);
+                assertTrue(slot.complete(1, reply));
+            });
+            reader.start();
+            assertTrue(slot.await(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+            assertTrue(slot.isReady());
+            reader.join();
+
+            assertEquals(1, slot.reply().bytes().readInt());
+            assertEquals(1, pool.leases());
+            slot.releaseReply();
+            assertEquals(0, pool.leases());
+            assertEquals(1, pool.peakLeases());
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void timesOutAndCloses() throws InterruptedException {
+        final ReplyBufferPool pool = new ReplyBufferPool(WireType.BINARY);
+        try {
+            final ReplySlot slot = new ReplySlot(pool);
+            slot.reset(2);
+            assertFalse(slot.await(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(5)));
+
+            assertTrue(slot.close());
+            assertTrue(slot.await(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+            assertFalse(slot.isReady());
+            slot.release();
+        } finally {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void dropsAReplyForATidGivenUpOn() {
+        final ReplyBufferPool pool = new ReplyBufferPool(WireType.BINARY);
+        try {
+            final ReplySlot slot = new ReplySlot(pool);
+            slot.reset(3);
+            assertTrue(slot.close());
+            slot.reset(4);
+
+            // the reply to the request given up on arrives while waiting for the next one
+            final Wire stale = slot.acquireReply(4);
+            stale.bytes().writeInt(3);
+            assertFalse(slot.complete(3, stale));
+            assertTrue(slot.isWaiting());
+            assertEquals(0, pool.leases());
+
+            final Wire reply = slot.acquireReply(4);
+            reply.bytes().writeInt(4);
+            assertTrue(slot.complete(4, reply));
+            // the reply arrived first
+            assertFalse(slot.close());
+            assertTrue(slot.isReady());
+            assertEquals(4, slot.reply().bytes().readInt());
+            slot.release();
+        } finally {
+            pool.close();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.AbstractReferenceCounted;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import net.openhft.chronicle.network.AcceptorEventHandler;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.VanillaNetworkContext;
+import net.openhft.chronicle.threads.EventGroup;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireIn;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.performance.tests.network.LegacyHanderFactory;
+import net.openhft.performance.tests.network.WireEchoRequestHandler;
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static net.openhft.chronicle.network.connection.SocketAddressSupplier.uri;
+import static org.junit.Assert.*;
+
+public class StripedTcpChannelHubTest extends NetworkTestCommon {
+    private static final String hostPort = "host.port";
+    private static final int CONNECTIONS = 3;
+
+    private EventLoop eg;
+    private StripedTcpChannelHub striped;
+
+    @Before
+    public void setUp() throws IOException {
+        // TODO FIX, as in SimpleServerAndClientTest
+        AbstractReferenceCounted.disableReferenceTracing();
+
+        TCPRegistry.createServerSocketChannelFor(hostPort);
+        eg = new EventGroup(true);
+        eg.start();
+        eg.addHandler(new AcceptorEventHandler(hostPort,
+                LegacyHanderFactory.simpleTcpEventHandlerFactory(WireEchoRequestHandler::new, WireType.TEXT),
+                VanillaNetworkContext::new));
+    }
+
+    @After
+    public void tearDown() {
+        Closeable.closeQuietly(striped);
+        eg.stop();
+        eg.close();
+        TcpChannelHub.closeAllHubs();
+    }
+
+    @NotNull
+    private StripedTcpChannelHub newStripedHub(@NotNull final StripedTcpChannelHub.Strategy strategy) {
+        // so a request which isn't replied to times out quickly
+        System.setProperty("tcp.client.timeout", "1000");
+        try {
+            return new StripedTcpChannelHub(CONNECTIONS,
+                    i -> new TcpChannelHub(null, eg, WireType.TEXT, "/" + i, uri(hostPort), false, null,
+                            HandlerPriority.TIMER, new FatalFailureConnectionStrategy(3, false)),
+                    strategy);
+        } finally {
+            System.clearProperty("tcp.client.timeout");
+        }
+    }
+
+    private void awaitConnected() {
+        for (int i = 0; i < striped.connections(); i++)
+            while (!striped.hub(i).isOpen())
+                Jvm.pause(1);
+    }
+
+    private static void writeRequest(@NotNull final WireOut wire, final long tid, @NotNull final String payload) {
+        wire.writeDocument(true, meta -> meta.write("tid").int64(tid));
+        wire.writeDocument(false, data -> data.write("payload").text(payload));
+    }
+
+    private static String readReply(@NotNull final WireIn reply) {
+        final String[] text = {null};
+        reply.readDocument(null, data -> text[0] = data.read("payloadResponse").text());
+        return text[0];
+    }
+
+    @Test
+    public void eachThreadUsesTheSameConnection() throws InterruptedException {
+        striped = newStripedHub(StripedTcpChannelHub.Strategy.CALLER_THREAD);
+        final int expected = (int) Math.floorMod(Thread.currentThread().getId(), (long) CONNECTIONS);
+        for (long tid = 1; tid <= 10; tid++)
+            assertEquals(expected, striped.connection(tid));
+
+        final AtomicReference<Thread> other = new AtomicReference<>();
+        final int[] otherConnection = {-1};
+        final Thread thread = new Thread(() -> {
+            other.set(Thread.currentThread());
+            otherConnection[0] = striped.connection(1);
+        });
+        thread.start();
+        thread.join();
+        assertEquals(Math.floorMod(other.get().getId(), (long) CONNECTIONS), otherConnection[0]);
+    }
+
+    @Test
+    public void aTidAlwaysUsesTheSameConnection() {
+        striped = newStripedHub(StripedTcpChannelHub.Strategy.TID);
+        final Set<Integer> used = new HashSet<>();
+        for (long tid = 1; tid <= 100; tid++) {
+            final int connection = striped.connection(tid);
+            assertEquals(connection, striped.connection(tid));
+            used.add(connection);
+        }
+        // sequential tids are spread across all the connections
+        assertEquals(CONNECTIONS, used.size());
+    }
+
+    @Test(timeout = 20_000)
+    public void aRequestIsSentOnTheConnectionWithTheFewestInFlight() throws Exception {
+        striped = newStripedHub(StripedTcpChannelHub.Strategy.LEAST_IN_FLIGHT);
+        awaitConnected();
+        assertEquals(0, striped.connection(1));
+
+        // holds a request in flight on connection 0 while its reply is decoded
+        final CountDownLatch decoding = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> {
+            final long tid = striped.nextUniqueTransaction(System.currentTimeMillis());
+            try {
+                return striped.syncRequest(tid, w -> writeRequest(w, tid, "first"), reply -> {
+                    decoding.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return readReply(reply);
+                });
+            } catch (TimeoutException e) {
+                throw new AssertionError(e);
+            }
+        });
+        assertTrue(decoding.await(10, TimeUnit.SECONDS));
+        assertEquals(1, striped.inFlight(0));
+
+        final long tid = striped.nextUniqueTransaction(System.currentTimeMillis());
+        assertEquals(1, striped.connection(tid));
+        assertEquals("second", striped.syncRequest(tid, w -> writeRequest(w, tid, "second"), StripedTcpChannelHubTest::readReply));
+        assertEquals(0, striped.inFlight(1));
+
+        release.countDown();
+        assertEquals("first", first.get(10, TimeUnit.SECONDS));
+        assertEquals(0, striped.inFlight(0));
+    }
+
+    @Test(timeout = 20_000)
+    public void aRequestIsNoLongerInFlightOnceWaitingForItsReplyFails() throws Exception {
+        striped = newStripedHub(StripedTcpChannelHub.Strategy.LEAST_IN_FLIGHT);
+        awaitConnected();
+
+        final long tid = striped.nextUniqueTransaction(System.currentTimeMillis());
+        // the reply is for another tid, so proxyReply times out
+        try {
+            striped.syncRequest(tid, w -> writeRequest(w, tid + 1, "lost"), StripedTcpChannelHubTest::readReply);
+            fail();
+        } catch (TimeoutException expected) {
+            // expected
+        }
+        for (int i = 0; i < CONNECTIONS; i++)
+            assertEquals(0, striped.inFlight(i));
+    }
+
+    @Test(timeout = 20_000)
+    public void subscriptionsAreSpreadAcrossTheConnectionsAndStayOnOne() throws Exception {
+        striped = newStripedHub(StripedTcpChannelHub.Strategy.LEAST_IN_FLIGHT);
+        for (int i = 0; i < 2 * CONNECTIONS; i++)
+            assertSame(striped.hub(i % CONNECTIONS), striped.subscriptionHub());
+
+        final TcpChannelHub hub = striped.subscriptionHub();
+        assertSame(striped.hub(0), hub);
+        final CompletableFuture<String> message = new CompletableFuture<>();
+        final AbstractAsyncSubscription subscription = new AbstractAsyncSubscription(hub, "/0", "test") {
+            @Override
+            public void onSubscribe(@NotNull final WireOut wireOut) {
+                wireOut.write("payload").text("subscribed");
+            }
+
+            @Override
+            public void onConsumer(@NotNull final WireIn inWire) {
+                message.complete(readReply(inWire));
+            }
+        };
+        hub.subscribe(subscription);
+        // the echo is the subscription's message, which is read from the connection it was made on
+        assertEquals("subscribed", message.get(10, TimeUnit.SECONDS));
+        assertEquals(0, striped.inFlight(0));
+    }
+}
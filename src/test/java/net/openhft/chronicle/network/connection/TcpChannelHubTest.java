@@ -0,0 +1,380 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.AbstractReferenceCounted;
+import net.openhft.chronicle.core.threads.EventLoop;
+import net.openhft.chronicle.core.threads.HandlerPriority;
+import net.openhft.chronicle.network.AcceptorEventHandler;
+import net.openhft.chronicle.network.NetworkContext;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.network.TCPRegistry;
+import net.openhft.chronicle.network.VanillaNetworkContext;
+import net.openhft.chronicle.network.tcp.ChronicleServerSocketChannel;
+import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
+import net.openhft.chronicle.threads.EventGroup;
+import net.openhft.chronicle.wire.DocumentContext;
+import net.openhft.chronicle.wire.TextWire;
+import net.openhft.chronicle.wire.Wire;
+import net.openhft.chronicle.wire.WireOut;
+import net.openhft.chronicle.wire.WireType;
+import net.openhft.chronicle.wire.Wires;
+import net.openhft.performance.tests.network.LegacyHanderFactory;
+import net.openhft.performance.tests.network.WireEchoRequestHandler;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static net.openhft.chronicle.network.connection.SocketAddressSupplier.uri;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TcpChannelHubTest extends NetworkTestCommon {
+    private static final String hostPort = "host.port";
+    private static final String rawHostPort = "raw.host.port";
+
+    private EventLoop eg;
+    private TcpChannelHub hub;
+
+    @Before
+    public void setUp() throws IOException {
+        // TODO FIX, as in SimpleServerAndClientTest
+        AbstractReferenceCounted.disableReferenceTracing();
+
+        TCPRegistry.createServerSocketChannelFor(hostPort);
+        eg = new EventGroup(true);
+        eg.start();
+        eg.addHandler(new AcceptorEventHandler(hostPort,
+                LegacyHanderFactory.simpleTcpEventHandlerFactory(CountingEchoHandler::new, WireType.TEXT),
+                VanillaNetworkContext::new));
+        CountingEchoHandler.PAYLOADS.clear();
+        hub = newHub();
+    }
+
+    @NotNull
+    private TcpChannelHub newHub() {
+        return newHub(new FatalFailureConnectionStrategy(3, false));
+    }
+
+    @NotNull
+    private TcpChannelHub newHub(@NotNull final FatalFailureConnectionStrategy connectionStrategy) {
+        return new TcpChannelHub(null, eg, WireType.TEXT, "/", uri(hostPort), false, null,
+                HandlerPriority.TIMER, connectionStrategy);
+    }
+
+    @NotNull
+    private GatedConnectionStrategy newHubWithADisconnectedQueue() {
+        hub.close();
+        final GatedConnectionStrategy connectionStrategy = new GatedConnectionStrategy();
+        System.setProperty("tcp.client.disconnectedQueue.maxBytes", "65536");
+        try {
+            hub = newHub(connectionStrategy);
+        } finally {
+            System.clearProperty("tcp.client.disconnectedQueue.maxBytes");
+        }
+        return connectionStrategy;
+    }
+
+    @After
+    public void tearDown() {
+        hub.close();
+        eg.stop();
+        eg.close();
+        TcpChannelHub.closeAllHubs();
+    }
+
+    private void send(final long tid, @NotNull final String payload) {
+        final Bytes<ByteBuffer> bytes = Bytes.elasticByteBuffer();
+        try {
+            final Wire wire = new TextWire(bytes).useTextDocuments();
+            wire.writeDocument(true, w -> w.write("tid").int64(tid));
+            wire.writeDocument(false, w -> w.write("payload").text(payload));
+            hub.lock2(() -> hub.outWire().bytes().write(bytes), true, TryLock.LOCK);
+        } finally {
+            bytes.releaseLast();
+        }
+    }
+
+    /**
+     * sends a message without a tid, which has no reply to wait for
+     */
+    private void sendOneWay(@NotNull final String payload) {
+        final Bytes<ByteBuffer> bytes = Bytes.elasticByteBuffer();
+        try {
+            final Wire wire = new TextWire(bytes).useTextDocuments();
+            wire.writeDocument(true, w -> w.write("csp").text("/oneWay"));
+            wire.writeDocument(false, w -> w.write("payload").text(payload));
+            hub.lock2(() -> hub.outWire().bytes().write(bytes), true, TryLock.LOCK);
+        } finally {
+            bytes.releaseLast();
+        }
+    }
+
+    private void awaitConnected() {
+        while (!hub.isOpen())
+            Jvm.pause(1);
+    }
+
+    @Test(timeout = 20_000)
+    public void aReplyWhichArrivesBeforeItsTidIsRegisteredIsStashed() throws Exception {
+        assertStashedReplyIsHandedOver();
+    }
+
+    @Test(timeout = 20_000)
+    public void anAsyncRequestIsCompletedWithTheDecodedReply() throws Exception {
+        assertAsyncRequestIsCompleted();
+    }
+
+    @Test(timeout = 20_000)
+    public void readingOnTheEventLoopPassesRepliesTheSameWay() throws Exception {
+        hub.close();
+        System.setProperty("tcp.client.eventLoopReads", "true");
+        try {
+            hub = newHub();
+        } finally {
+            System.clearProperty("tcp.client.eventLoopReads");
+        }
+        assertStashedReplyIsHandedOver();
+        assertAsyncRequestIsCompleted();
+    }
+
+    @Test(timeout = 20_000)
+    public void aSyncRequestSentWhileDisconnectedIsSentOnceOnReconnect() throws Exception {
+        final GatedConnectionStrategy connectionStrategy = newHubWithADisconnectedQueue();
+        awaitConnected();
+        hub.closeSocket();
+
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        // queued, and kept by this thread's reply slot
+        send(tid, "queued");
+        // reconnect once this thread is waiting for the reply
+        final Thread reconnect = new Thread(() -> {
+            Jvm.pause(100);
+            connectionStrategy.reconnect.countDown();
+        });
+        reconnect.start();
+
+        final Wire reply = hub.proxyReply(5_000, tid);
+        try {
+            final String[] text = {null};
+            reply.readDocument(null, data -> text[0] = data.read("payloadResponse").text());
+            assertEquals("queued", text[0]);
+        } finally {
+            hub.releaseReply();
+        }
+        reconnect.join();
+
+        // a second copy would be echoed and stashed
+        Jvm.pause(100);
+        assertEquals("[queued]", CountingEchoHandler.PAYLOADS.toString());
+        assertFalse(hub.hasPendingReplies());
+    }
+
+    @Test(timeout = 20_000)
+    public void anAsyncRequestMadeWhileDisconnectedIsSentOnReconnect() throws Exception {
+        final GatedConnectionStrategy connectionStrategy = newHubWithADisconnectedQueue();
+        awaitConnected();
+        hub.closeSocket();
+
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        final CompletableFuture<String> reply = hub.asyncRequest(tid, w -> {
+                    w.writeDocument(true, meta -> meta.write("tid").int64(tid));
+                    w.writeDocument(false, data -> data.write("payload").text("queued"));
+                },
+                in -> in.read("payloadResponse").text(), null, 5_000);
+        assertFalse(reply.isDone());
+
+        connectionStrategy.reconnect.countDown();
+        assertEquals("queued", reply.get(10, TimeUnit.SECONDS));
+        assertEquals("[queued]", CountingEchoHandler.PAYLOADS.toString());
+    }
+
+    @Test(timeout = 20_000)
+    public void repliesWrittenTogetherOrSplitAcrossWritesAreEachHandedOver() throws Exception {
+        TCPRegistry.createServerSocketChannelFor(rawHostPort);
+        final ChronicleServerSocketChannel server = TCPRegistry.acquireServerSocketChannel(rawHostPort);
+        hub.close();
+        hub = new TcpChannelHub(null, eg, WireType.TEXT, "/", uri(rawHostPort), false, null,
+                HandlerPriority.TIMER, new FatalFailureConnectionStrategy(3, false));
+        final ChronicleSocketChannel channel = server.accept();
+        final Bytes<ByteBuffer> replies = Bytes.elasticByteBuffer();
+        try {
+            awaitConnected();
+            final Wire wire = WireType.TEXT.apply(replies);
+
+            // several replies in one write
+            final List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                final long tid = asyncRequest(futures);
+                writeReply(wire, tid, "together" + i);
+            }
+            writeFully(channel, replies, 0, replies.writePosition());
+            for (int i = 0; i < 3; i++)
+                assertEquals("together" + i, futures.get(i).get(10, TimeUnit.SECONDS));
+
+            // one reply split across two writes, in the header of its data
+            replies.clear();
+            futures.clear();
+            final long tid = asyncRequest(futures);
+            writeReply(wire, tid, "split");
+            final long split = Wires.lengthOf(replies.readInt(0)) + 4 + 2;
+            writeFully(channel, replies, 0, split);
+            Jvm.pause(100);
+            assertFalse(futures.get(0).isDone());
+            writeFully(channel, replies, split, replies.writePosition());
+            assertEquals("split", futures.get(0).get(10, TimeUnit.SECONDS));
+        } finally {
+            replies.releaseLast();
+            channel.close();
+            server.close();
+        }
+    }
+
+    private long asyncRequest(@NotNull final List<CompletableFuture<String>> futures) {
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        futures.add(hub.asyncRequest(tid, w -> {
+                    w.writeDocument(true, meta -> meta.write("tid").int64(tid));
+                    w.writeDocument(false, data -> data.write("payload").text("request"));
+                },
+                in -> in.read("payloadResponse").text(), null, 5_000));
+        return tid;
+    }
+
+    private static void writeReply(@NotNull final Wire wire, final long tid, @NotNull final String payload) {
+        wire.writeDocument(true, meta -> meta.write("tid").int64(tid));
+        wire.writeDocument(false, data -> data.write("payloadResponse").text(payload));
+    }
+
+    private static void writeFully(@NotNull final ChronicleSocketChannel channel,
+                                   @NotNull final Bytes<ByteBuffer> bytes,
+                                   final long from,
+                                   final long to) throws IOException {
+        final ByteBuffer buffer = bytes.underlyingObject().duplicate();
+        buffer.limit((int) to);
+        buffer.position((int) from);
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    @Test(timeout = 20_000)
+    public void withVirtualThreadsOnlySyncRequestsTakeAReplySlotAndTheyAreReturned() throws Exception {
+        hub.close();
+        System.setProperty("tcp.client.virtualThreads", "true");
+        System.setProperty("tcp.client.disconnectedQueue.maxBytes", "65536");
+        try {
+            hub = newHub();
+        } finally {
+            System.clearProperty("tcp.client.virtualThreads");
+            System.clearProperty("tcp.client.disconnectedQueue.maxBytes");
+        }
+        awaitConnected();
+
+        sendOneWay("before");
+        assertFalse(hub.holdsReplySlot());
+
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        send(tid, "sync");
+        assertTrue(hub.holdsReplySlot());
+        final Wire reply = hub.proxyReply(5_000, tid);
+        final String[] text = {null};
+        reply.readDocument(null, data -> text[0] = data.read("payloadResponse").text());
+        assertEquals("sync", text[0]);
+        hub.releaseReply();
+        assertFalse(hub.holdsReplySlot());
+        assertEquals(1, hub.freeReplySlots());
+
+        sendOneWay("after");
+        assertFalse(hub.holdsReplySlot());
+        assertEquals(1, hub.freeReplySlots());
+    }
+
+    private void assertStashedReplyIsHandedOver() throws TimeoutException {
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        send(tid, "early");
+
+        // the echo arrives before anyone waits for it
+        while (!hub.hasPendingReplies())
+            Jvm.pause(1);
+
+        final Wire reply = hub.proxyReply(5_000, tid);
+        try {
+            final String[] text = {null};
+            reply.readDocument(null, data -> text[0] = data.read("payloadResponse").text());
+            assertEquals("early", text[0]);
+        } finally {
+            hub.releaseReply();
+        }
+        assertFalse(hub.hasPendingReplies());
+    }
+
+    private void assertAsyncRequestIsCompleted() throws Exception {
+        // writeCombined() doesn't wait for the connection
+        awaitConnected();
+        final long tid = hub.nextUniqueTransaction(System.currentTimeMillis());
+        final CompletableFuture<String> reply = hub.asyncRequest(tid, w -> {
+                    w.writeDocument(true, meta -> meta.write("tid").int64(tid));
+                    w.writeDocument(false, data -> data.write("payload").text("async"));
+                },
+                in -> in.read("payloadResponse").text(), null, 5_000);
+        assertEquals("async", reply.get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * connects the first time, then holds back reconnecting until it is let go
+     */
+    private static final class GatedConnectionStrategy extends FatalFailureConnectionStrategy {
+        final CountDownLatch reconnect = new CountDownLatch(1);
+        private final AtomicInteger connects = new AtomicInteger();
+
+        GatedConnectionStrategy() {
+            super(3, false);
+        }
+
+        @Override
+        public ChronicleSocketChannel connect(@NotNull String name,
+                                              @NotNull SocketAddressSupplier socketAddressSupplier,
+                                              boolean didLogIn,
+                                              @Nullable FatalFailureMonitor fatalFailureMonitor) throws InterruptedException {
+            if (connects.getAndIncrement() > 0)
+                reconnect.await();
+            return super.connect(name, socketAddressSupplier, didLogIn, fatalFailureMonitor);
+        }
+    }
+
+    /**
+     * echoes requests, keeping the payloads it is sent
+     */
+    public static final class CountingEchoHandler extends WireEchoRequestHandler {
+        static final Queue<String> PAYLOADS = new ConcurrentLinkedQueue<>();
+
+        public CountingEchoHandler(NetworkContext networkContext) {
+            super(networkContext);
+        }
+
+        @Override
+        protected void onRead(@NotNull DocumentContext in, @NotNull WireOut outWire) {
+            if (in.isMetaData()) {
+                super.onRead(in, outWire);
+                return;
+            }
+            final String payload = in.wire().read("payload").text();
+            PAYLOADS.add(payload);
+            outWire.writeDocument(false, data -> data.write("payloadResponse").text(payload));
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package net.openhft.chronicle.network.connection;
+
+import net.openhft.chronicle.network.NetworkTestCommon;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WriteBackoffTest extends NetworkTestCommon {
+
+    @Test
+    public void yieldsThenParksForLongerUpToTheLimit() {
+        final WriteBackoff backoff = new WriteBackoff();
+        for (int i = 0; i < WriteBackoff.YIELDS; i++) {
+            assertTrue(backoff.willYield());
+            assertTrue(backoff.pause() >= 0);
+        }
+        assertFalse(backoff.willYield());
+
+        long expected = WriteBackoff.MIN_PARK_NS;
+        for (int i = 0; i < 20; i++) {
+            assertEquals(expected, backoff.parkNs());
+            backoff.pause();
+            expected = Math.min(expected * 2, WriteBackoff.MAX_PARK_NS);
+        }
+        assertEquals(WriteBackoff.MAX_PARK_NS, backoff.parkNs());
+    }
+
+    @Test
+    public void resetsOnceTheWriteMakesProgress() {
+        final WriteBackoff backoff = new WriteBackoff();
+        for (int i = 0; i < WriteBackoff.YIELDS + 5; i++)
+            backoff.pause();
+        assertFalse(backoff.willYield());
+        assertTrue(backoff.parkNs() > WriteBackoff.MIN_PARK_NS);
+
+        backoff.reset();
+        assertTrue(backoff.willYield());
+        assertEquals(WriteBackoff.MIN_PARK_NS, backoff.parkNs());
+    }
+
+    @Test
+    public void reportsHowLongItPaused() {
+        final WriteBackoff backoff = new WriteBackoff();
+        for (int i = 0; i < WriteBackoff.YIELDS; i++)
+            backoff.pause();
+        // parking may return early, but not before it started
+        final long start = System.nanoTime();
+        final long paused = backoff.pause();
+        assertTrue(paused >= 0);
+        assertTrue(paused <= System.nanoTime() - start);
+    }
+}
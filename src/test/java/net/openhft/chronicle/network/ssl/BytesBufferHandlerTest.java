@@ -0,0 +1,150 @@
+package net.openhft.chronicle.network.ssl;
+
+import net.openhft.chronicle.bytes.Bytes;
+import net.openhft.chronicle.core.io.SimpleCloseable;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.network.VanillaNetworkContext;
+import net.openhft.chronicle.network.api.TcpHandler;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class BytesBufferHandlerTest extends NetworkTestCommon {
+
+    private static void writeBytes(Bytes<ByteBuffer> bytes, int from, int length) {
+        for (int i = 0; i < length; i++)
+            bytes.writeByte((byte) (from + i));
+    }
+
+    private static ByteBuffer bytes(int from, int length) {
+        final ByteBuffer bb = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++)
+            bb.put((byte) (from + i));
+        bb.flip();
+        return bb;
+    }
+
+    @Test
+    public void readDataCopiesWithoutMovingTheSocketBuffer() {
+        final Bytes<ByteBuffer> input = Bytes.elasticByteBuffer(256);
+        final Bytes<ByteBuffer> output = Bytes.elasticByteBuffer(256);
+        final BytesBufferHandler<Context> handler = new BytesBufferHandler<>();
+        try {
+            handler.set(new RecordingHandler(0, 0), input, output, null);
+            writeBytes(input, 0, 100);
+            input.readSkip(10);
+            final int position = input.underlyingObject().position();
+            final int limit = input.underlyingObject().limit();
+
+            final ByteBuffer target = ByteBuffer.allocate(50);
+            assertEquals(50, handler.readData(target));
+            assertEquals(60, input.readPosition());
+            assertEquals(position, input.underlyingObject().position());
+            assertEquals(limit, input.underlyingObject().limit());
+            target.flip();
+            for (int i = 0; i < 50; i++)
+                assertEquals((byte) (10 + i), target.get());
+
+            // only what is left
+            assertEquals(40, handler.readData(ByteBuffer.allocate(64)));
+            assertEquals(0, handler.readData(ByteBuffer.allocate(64)));
+        } finally {
+            handler.releaseBuffers();
+            input.releaseLast();
+            output.releaseLast();
+        }
+    }
+
+    @Test
+    public void writeDataAppendsAndGrowsTheSocketBuffer() {
+        final Bytes<ByteBuffer> input = Bytes.elasticByteBuffer(16);
+        final Bytes<ByteBuffer> output = Bytes.elasticByteBuffer(16);
+        final BytesBufferHandler<Context> handler = new BytesBufferHandler<>();
+        try {
+            handler.set(new RecordingHandler(0, 0), input, output, null);
+            writeBytes(output, 0, 8);
+            output.readSkip(4);
+
+            final ByteBuffer encrypted = bytes(8, 100);
+            assertEquals(100, handler.writeData(encrypted));
+            assertEquals(0, encrypted.remaining());
+            // what was already read is compacted away
+            assertEquals(0, output.readPosition());
+            assertEquals(104, output.readRemaining());
+            for (int i = 0; i < 104; i++)
+                assertEquals((byte) (4 + i), output.readByte());
+        } finally {
+            handler.releaseBuffers();
+            input.releaseLast();
+            output.releaseLast();
+        }
+    }
+
+    @Test
+    public void handleDecryptedDataReusesItsWrappersAndCompactsWhatWasRead() {
+        final Bytes<ByteBuffer> input = Bytes.elasticByteBuffer(16);
+        final Bytes<ByteBuffer> output = Bytes.elasticByteBuffer(16);
+        final BytesBufferHandler<Context> handler = new BytesBufferHandler<>();
+        final RecordingHandler delegate = new RecordingHandler(4, 2);
+        try {
+            handler.set(delegate, input, output, null);
+            // as the SslEngineStateMachine leaves them, filled up to their positions
+            final ByteBuffer applicationInput = ByteBuffer.allocate(64);
+            applicationInput.put(bytes(0, 10));
+            final ByteBuffer applicationOutput = ByteBuffer.allocate(64);
+
+            handler.handleDecryptedData(applicationInput, applicationOutput);
+            assertEquals(6, applicationInput.position());
+            assertEquals(4, applicationInput.get(0));
+            assertEquals(2, applicationOutput.position());
+
+            handler.handleDecryptedData(applicationInput, applicationOutput);
+            assertEquals(2, applicationInput.position());
+            assertEquals(8, applicationInput.get(0));
+            assertEquals(4, applicationOutput.position());
+
+            assertEquals(2, delegate.ins.size());
+            assertSame(delegate.ins.get(0), delegate.ins.get(1));
+            assertSame(delegate.outs.get(0), delegate.outs.get(1));
+            assertEquals("[0, 1, 2, 3, 4, 5, 6, 7]", delegate.read.toString());
+        } finally {
+            handler.releaseBuffers();
+            input.releaseLast();
+            output.releaseLast();
+        }
+    }
+
+    private static final class Context extends VanillaNetworkContext<Context> {
+    }
+
+    private static final class RecordingHandler
+            extends SimpleCloseable
+            implements TcpHandler<Context> {
+        private final int toRead;
+        private final int toWrite;
+        private final List<Bytes> ins = new ArrayList<>();
+        private final List<Bytes> outs = new ArrayList<>();
+        private final List<Byte> read = new ArrayList<>();
+
+        RecordingHandler(int toRead, int toWrite) {
+            this.toRead = toRead;
+            this.toWrite = toWrite;
+        }
+
+        @Override
+        public void process(@NotNull Bytes in, @NotNull Bytes out, Context nc) {
+            ins.add(in);
+            outs.add(out);
+            for (int i = 0; i < toRead; i++)
+                read.add(in.readByte());
+            for (int i = 0; i < toWrite; i++)
+                out.writeByte((byte) i);
+        }
+    }
+}
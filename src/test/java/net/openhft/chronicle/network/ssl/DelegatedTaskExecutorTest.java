@@ -0,0 +1,51 @@
+package net.openhft.chronicle.network.ssl;
+
+import net.openhft.chronicle.network.NetworkTestCommon;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class DelegatedTaskExecutorTest extends NetworkTestCommon {
+
+    @Test(timeout = 10_000)
+    public void tasksAreRunByTheCallerOnceTheQueueIsFull() throws InterruptedException {
+        final DelegatedTaskExecutor executor = new DelegatedTaskExecutor("delegated-test", 1, 1);
+        try {
+            final CountDownLatch blocked = new CountDownLatch(1);
+            final CountDownLatch release = new CountDownLatch(1);
+            final CountDownLatch done = new CountDownLatch(3);
+            executor.execute(() -> {
+                blocked.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, done::countDown);
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+
+            // fills the queue
+            executor.execute(() -> {
+            }, done::countDown);
+            assertEquals(1, executor.queueDepth());
+
+            // run by this thread
+            final Thread caller = Thread.currentThread();
+            final Thread[] ranOn = new Thread[1];
+            executor.execute(() -> ranOn[0] = Thread.currentThread(), done::countDown);
+            assertEquals(caller, ranOn[0]);
+            assertEquals(1, executor.callerRunTasks());
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(3, executor.completedTasks());
+            assertTrue(executor.maxTaskNanos() >= executor.averageTaskNanos());
+        } finally {
+            executor.close();
+        }
+    }
+}
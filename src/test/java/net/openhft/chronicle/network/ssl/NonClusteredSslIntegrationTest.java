@@ -2,19 +2,23 @@ package net.openhft.chronicle.network.ssl;
 
 import net.openhft.chronicle.bytes.Bytes;
 import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
 import net.openhft.chronicle.core.io.SimpleCloseable;
+import net.openhft.chronicle.core.threads.EventLoop;
 import net.openhft.chronicle.network.*;
 import net.openhft.chronicle.network.api.TcpHandler;
 import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
 import net.openhft.chronicle.threads.EventGroup;
 import net.openhft.chronicle.threads.Pauser;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.junit.*;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
 import javax.net.ssl.SSLContext;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.KeyStoreException;
@@ -28,20 +32,16 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static java.util.Arrays.stream;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
- * IMPORTANT - each event handler MUST run in its own thread, as the handshake is a
- * blocking operation. Spinning the work out to a separate thread does not work,
- * as subsequent invocations of the TcpEventHandler may consume socket data during the
- * handshake.
+ * The handshake is performed a step at a time on each poll of the TcpEventHandler, reading and
+ * writing through its buffers, so the event handlers no longer need a thread each.
  * <p>
- * public ServerThreadingStrategy serverThreadingStrategy() {
- * return ServerThreadingStrategy.MULTI_THREADED_BUSY_WAITING;
- * }
+ * Each mode is also run with the encryption on an {@link SslNetworkContext#sslPipelineEventLoop()}.
  */
 @RunWith(Parameterized.class)
-@Ignore
 public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
 
     private static final boolean DEBUG = Jvm.getBoolean("NonClusteredSslIntegrationTest.debug");
@@ -52,15 +52,21 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
     private final CountingTcpHandler clientInitiator = new CountingTcpHandler("client-initiator");
     private final CountingTcpHandler serverInitiator = new CountingTcpHandler("server-initiator");
     private final Mode mode;
+    @Nullable
+    private final EventGroup pipeline;
 
-    public NonClusteredSslIntegrationTest(final String name, final Mode mode) {
+    public NonClusteredSslIntegrationTest(final String name, final Mode mode, final boolean pipelined) {
         this.mode = mode;
+        this.pipeline = pipelined ? new EventGroup(true, Pauser.millis(1), false, "pipeline") : null;
     }
 
     @Parameterized.Parameters(name = "{0}")
     public static List<Object[]> params() {
         final List<Object[]> params = new ArrayList<>();
-        stream(Mode.values()).forEach(m -> params.add(new Object[]{m.name(), m}));
+        stream(Mode.values()).forEach(m -> {
+            params.add(new Object[]{m.name(), m, false});
+            params.add(new Object[]{m.name() + "-pipelined", m, true});
+        });
 
         return params;
     }
@@ -79,19 +85,20 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
             final TcpEventHandler<StubNetworkContext> eventHandler = new TcpEventHandler<>(nc);
             eventHandler.tcpHandler(getTcpHandler(clientAcceptor));
             return eventHandler;
-        }, StubNetworkContext::new));
+        }, this::newNetworkContext));
 
         server.addHandler(new AcceptorEventHandler<>("server", nc -> {
             final TcpEventHandler<StubNetworkContext> eventHandler = new TcpEventHandler<>(nc);
             eventHandler.tcpHandler(getTcpHandler(serverAcceptor));
             return eventHandler;
-        }, StubNetworkContext::new));
+        }, this::newNetworkContext));
 
     }
 
     @Test(timeout = 40_000L)
     public void shouldCommunicate() throws Exception {
-        Assume.assumeFalse("BI_DIRECTIONAL mode sometimes hangs during handshake", mode == Mode.BI_DIRECTIONAL);
+        if (pipeline != null)
+            pipeline.start();
         client.start();
         server.start();
         doConnect();
@@ -116,6 +123,7 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
         client.stop();
         server.close();
         server.stop();
+        Closeable.closeQuietly(pipeline);
         TCPRegistry.reset();
         TCPRegistry.assertAllServersStopped();
     }
@@ -126,7 +134,7 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
                 final TcpEventHandler<StubNetworkContext> eventHandler = new TcpEventHandler<>(nc);
                 eventHandler.tcpHandler(getTcpHandler(clientInitiator));
                 return eventHandler;
-            }).connect("server", client, new StubNetworkContext(), 1000L);
+            }).connect("server", client, newNetworkContext(), 1000L);
         }
 
         if (mode == Mode.SERVER_TO_CLIENT || mode == Mode.BI_DIRECTIONAL) {
@@ -134,10 +142,15 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
                 final TcpEventHandler<StubNetworkContext> eventHandler = new TcpEventHandler<>(nc);
                 eventHandler.tcpHandler(getTcpHandler(serverInitiator));
                 return eventHandler;
-            }).connect("client", server, new StubNetworkContext(), 1000L);
+            }).connect("client", server, newNetworkContext(), 1000L);
         }
     }
 
+    @NotNull
+    private StubNetworkContext newNetworkContext() {
+        return new StubNetworkContext(pipeline);
+    }
+
     @NotNull
     private TcpHandler<StubNetworkContext> getTcpHandler(final CountingTcpHandler delegate) {
         return new SslDelegatingTcpHandler<>(delegate);
@@ -153,6 +166,8 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
 
         assertTrue(serverInitiator.operationCount > 9);
         assertTrue(clientAcceptor.operationCount > 9);
+        assertNull(serverInitiator.wrongThread);
+        assertNull(clientAcceptor.wrongThread);
     }
 
     private void assertThatClientConnectsToServer() throws InterruptedException {
@@ -165,6 +180,8 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
 
         assertTrue(clientInitiator.operationCount > 9);
         assertTrue(serverAcceptor.operationCount > 9);
+        assertNull(clientInitiator.wrongThread);
+        assertNull(serverAcceptor.wrongThread);
     }
 
     private enum Mode {
@@ -181,13 +198,42 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
         private volatile long operationCount = 0;
         private long counter = 0;
         private long lastSent = 0;
+        // the thread process is called on, which every other call is expected on too
+        @Nullable
+        private volatile Thread thread;
+        @Nullable
+        private volatile String wrongThread;
 
         CountingTcpHandler(final String label) {
             this.label = label;
         }
 
+        private void checkThread(final String method) {
+            final Thread current = Thread.currentThread();
+            if (thread == null)
+                thread = current;
+            else if (thread != current && wrongThread == null)
+                wrongThread = method + " called on " + current + " rather than " + thread;
+        }
+
+        @Override
+        public void onReadTime(final long readTimeNS, final ByteBuffer inBB, final int position, final int limit) {
+            checkThread("onReadTime");
+        }
+
+        @Override
+        public void onWriteTime(final long writeTimeNS, final ByteBuffer byteBuffer, final int start, final int position) {
+            checkThread("onWriteTime");
+        }
+
+        @Override
+        public void onReadComplete() {
+            checkThread("onReadComplete");
+        }
+
         @Override
         public void process(@NotNull final Bytes in, @NotNull final Bytes out, final StubNetworkContext nc) {
+            checkThread("process");
             latch.countDown();
             try {
                 if (nc.isAcceptor() && in.readRemaining() != 0) {
@@ -235,6 +281,19 @@ public final class NonClusteredSslIntegrationTest extends NetworkTestCommon {
     private static final class StubNetworkContext
             extends VanillaNetworkContext<StubNetworkContext>
             implements SslNetworkContext<StubNetworkContext> {
+        @Nullable
+        private final EventLoop pipeline;
+
+        StubNetworkContext(@Nullable final EventLoop pipeline) {
+            this.pipeline = pipeline;
+        }
+
+        @Nullable
+        @Override
+        public EventLoop sslPipelineEventLoop() {
+            return pipeline;
+        }
+
         @Override
         public SSLContext sslContext() {
             try {
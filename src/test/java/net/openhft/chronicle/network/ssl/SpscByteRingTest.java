@@ -0,0 +1,112 @@
+package net.openhft.chronicle.network.ssl;
+
+import net.openhft.chronicle.network.NetworkTestCommon;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SpscByteRingTest extends NetworkTestCommon {
+
+    private static ByteBuffer bytes(int from, int length) {
+        final ByteBuffer bb = ByteBuffer.allocate(length);
+        for (int i = 0; i < length; i++)
+            bb.put((byte) (from + i));
+        bb.flip();
+        return bb;
+    }
+
+    private static void assertBytes(int from, ByteBuffer bb) {
+        for (int i = 0; bb.hasRemaining(); i++)
+            assertEquals((byte) (from + i), bb.get());
+    }
+
+    @Test
+    public void aPooledRingReturnsItsBufferToThePool() {
+        final SslBufferPool pool = new SslBufferPool(4);
+        final SpscByteRing ring = new SpscByteRing(5000, pool);
+        assertEquals(8192, ring.capacity());
+        assertEquals(1, pool.allocated());
+
+        ring.release();
+        assertEquals(1, pool.pooled());
+        assertEquals(8192, new SpscByteRing(8192, pool).capacity());
+        assertEquals(1, pool.reused());
+    }
+
+    @Test
+    public void onlyWritesWhatFits() {
+        final SpscByteRing ring = new SpscByteRing(4096);
+        final ByteBuffer src = bytes(0, 5000);
+        assertEquals(4096, ring.write(src));
+        assertEquals(904, src.remaining());
+        assertEquals(4096, ring.readRemaining());
+        assertEquals(0, ring.write(src));
+
+        final ByteBuffer dst = ByteBuffer.allocate(1000);
+        assertEquals(1000, ring.read(dst));
+        assertEquals(3096, ring.readRemaining());
+        dst.flip();
+        assertBytes(0, dst);
+
+        assertEquals(904, ring.write(src));
+        assertEquals(4000, ring.readRemaining());
+    }
+
+    @Test
+    public void readsAndWritesAcrossTheEndOfTheRing() {
+        final SpscByteRing ring = new SpscByteRing(4096);
+        final ByteBuffer dst = ByteBuffer.allocate(8192);
+        // leaves the next write and read 1000 bytes before the end
+        assertEquals(3096, ring.write(bytes(0, 3096)));
+        assertEquals(3096, ring.read(dst));
+        dst.clear();
+
+        assertEquals(3000, ring.write(bytes(1, 3000)));
+        assertEquals(3000, ring.readRemaining());
+        assertEquals(3000, ring.read(dst));
+        assertEquals(0, ring.readRemaining());
+        dst.flip();
+        assertEquals(3000, dst.remaining());
+        assertBytes(1, dst);
+    }
+
+    @Test(timeout = 20_000)
+    public void passesBytesInOrderBetweenThreads() throws InterruptedException {
+        final SpscByteRing ring = new SpscByteRing(4096);
+        final int length = 1 << 22;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Thread writer = new Thread(() -> {
+            try {
+                final ByteBuffer src = ByteBuffer.allocate(1500);
+                for (int written = 0; written < length; ) {
+                    src.clear();
+                    for (int i = 0; i < src.capacity(); i++)
+                        src.put((byte) (written + i));
+                    src.flip();
+                    src.limit(Math.min(src.limit(), length - written));
+                    while (src.hasRemaining())
+                        written += ring.write(src);
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        }, "ring-writer");
+        writer.start();
+
+        final ByteBuffer dst = ByteBuffer.allocate(1000);
+        for (int read = 0; read < length; ) {
+            dst.clear();
+            ring.read(dst);
+            dst.flip();
+            while (dst.hasRemaining())
+                assertEquals((byte) read++, dst.get());
+        }
+        writer.join();
+        assertNull(failure.get());
+        assertEquals(0, ring.readRemaining());
+    }
+}
@@ -0,0 +1,306 @@
+package net.openhft.chronicle.network.ssl;
+
+import net.openhft.chronicle.core.Jvm;
+import net.openhft.chronicle.core.io.Closeable;
+import net.openhft.chronicle.network.NetworkTestCommon;
+import net.openhft.chronicle.network.tcp.ChronicleSocketChannel;
+import net.openhft.chronicle.network.tcp.ChronicleSocketChannelFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.net.ssl.SSLContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public final class SslEngineStateMachineTest extends NetworkTestCommon {
+
+    private ServerSocketChannel serverChannel;
+    private SSLContext context;
+    @Nullable
+    private SslSessionCache sessionCache;
+
+    private static void waitFor(@NotNull final BooleanSupplier condition, @NotNull final Connection... connections) {
+        final long end = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > end)
+                throw new AssertionError("timed out");
+            for (Connection connection : connections)
+                connection.action();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        // https://bugs.openjdk.java.net/browse/JDK-8211426
+        if (Jvm.majorVersion() >= 11)
+            System.setProperty("jdk.tls.server.protocols", "TLSv1.2");
+        context = SSLContextLoader.getInitialisedContext();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        serverChannel.close();
+        System.clearProperty("jdk.tls.server.protocols");
+    }
+
+    @Test
+    public void closeLeavesTheBuffersToTheThreadCallingAction() throws Exception {
+        final SslBufferPool pool = new SslBufferPool(16);
+        final ChronicleSocketChannel channel = ChronicleSocketChannelFactory.wrap();
+        try {
+            final SslEngineStateMachine stateMachine = new SslEngineStateMachine(new Peer(channel, 0, 0), false, pool);
+            stateMachine.initialise(context, channel, null, null);
+            assertEquals(4, pool.allocated());
+
+            // e.g. from another thread while action() is running
+            stateMachine.close();
+            assertFalse(stateMachine.action());
+            assertEquals(0, pool.pooled());
+
+            stateMachine.release();
+            assertEquals(4, pool.pooled());
+            stateMachine.release();
+            assertEquals(4, pool.pooled());
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void aSlowHandshakeDoesntHoldUpAnotherConnection() throws Exception {
+        // the only worker is kept busy, so the slow connection's delegated tasks wait
+        final DelegatedTaskExecutor slowTasks = new DelegatedTaskExecutor("slow-handshake", 1, 16);
+        final CountDownLatch release = new CountDownLatch(1);
+        slowTasks.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, () -> {
+        });
+
+        try (Connection slow = new Connection(slowTasks, 64, 64);
+             Connection fast = new Connection(null, 64, 64)) {
+            // both connections are run on this thread, as they would be by one event loop
+            waitFor(fast::delivered, slow, fast);
+            assertFalse(slow.isHandshakeComplete());
+            // waiting for its delegated tasks isn't busy, so the event loop can pause
+            assertFalse(slow.action());
+
+            release.countDown();
+            waitFor(slow::delivered, slow, fast);
+        } finally {
+            release.countDown();
+            slowTasks.close();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void smallWritesAreCoalescedIntoOneRecord() throws Exception {
+        try (Connection connection = new Connection(null, 1000, 100)) {
+            connection.client.stateMachine.recordSizing(1000, TimeUnit.SECONDS.toNanos(10), false);
+            waitFor(connection::isHandshakeComplete, connection);
+
+            // the first 100 bytes are held back, which isn't busy
+            assertFalse(connection.client.stateMachine.action());
+            assertEquals(0, connection.server.received);
+
+            waitFor(connection::delivered, connection);
+            assertEquals(1, connection.client.records());
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void coalescingWaitsNoLongerThanTheDelay() throws Exception {
+        try (Connection connection = new Connection(null, 100, 100)) {
+            connection.client.stateMachine.recordSizing(1000, TimeUnit.MILLISECONDS.toNanos(1), false);
+            waitFor(connection::delivered, connection);
+            assertEquals(1, connection.client.records());
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void dynamicRecordSizingSendsSmallRecordsFirst() throws Exception {
+        final int length = 256 << 10;
+        try (Connection dynamic = new Connection(null, length, length);
+             Connection fixed = new Connection(null, length, length)) {
+            dynamic.client.stateMachine.recordSizing(0, 0, true);
+            waitFor(() -> dynamic.delivered() && fixed.delivered(), dynamic, fixed);
+
+            // a small record fits in one packet, allowing for the TLS overhead
+            assertTrue(dynamic.client.largestRecord() < 1500);
+            assertTrue(dynamic.client.records() >= length / 1360);
+            assertTrue(fixed.client.largestRecord() > 8192);
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void reconnectingToTheSamePeerResumesTheSession() throws Exception {
+        sessionCache = new SslSessionCache();
+        handshake();
+        assertEquals(0, sessionCache.resumedHandshakes());
+        assertEquals(2, sessionCache.fullHandshakes());
+
+        handshake();
+        // both the client and the server resumed
+        assertEquals(2, sessionCache.resumedHandshakes());
+        assertEquals(2, sessionCache.fullHandshakes());
+    }
+
+    @Test(timeout = 30_000)
+    public void reconnectingWithoutACachedSessionIsAFullHandshake() throws Exception {
+        sessionCache = new SslSessionCache();
+        handshake();
+
+        // a new context has no sessions to resume
+        context = SSLContextLoader.getInitialisedContext();
+        handshake();
+        assertEquals(0, sessionCache.resumedHandshakes());
+        assertEquals(4, sessionCache.fullHandshakes());
+    }
+
+    private void handshake() throws IOException {
+        try (Connection connection = new Connection(null, 0, 0)) {
+            waitFor(connection::isHandshakeComplete, connection);
+        }
+        // the creation time of a session is in milliseconds
+        Jvm.pause(2);
+    }
+
+    /**
+     * a client and server connected over loopback, the client sends {@code length} bytes, {@code chunk} at a time
+     */
+    private final class Connection implements AutoCloseable {
+        final Peer client;
+        final Peer server;
+        private final int length;
+
+        Connection(@Nullable final DelegatedTaskExecutor tasks, final int length, final int chunk) throws IOException {
+            this.length = length;
+            final ChronicleSocketChannel clientChannel = ChronicleSocketChannelFactory.wrap(
+                    (InetSocketAddress) serverChannel.getLocalAddress());
+            final ChronicleSocketChannel serverChannel = ChronicleSocketChannelFactory.wrap(
+                    SslEngineStateMachineTest.this.serverChannel.accept());
+            client = new Peer(clientChannel, length, chunk);
+            server = new Peer(serverChannel, 0, 0);
+            client.initialise(false, tasks);
+            server.initialise(true, tasks);
+        }
+
+        boolean action() {
+            return client.stateMachine.action() | server.stateMachine.action();
+        }
+
+        boolean isHandshakeComplete() {
+            return client.stateMachine.isHandshakeComplete() && server.stateMachine.isHandshakeComplete();
+        }
+
+        boolean delivered() {
+            return server.received == length;
+        }
+
+        @Override
+        public void close() {
+            client.close();
+            server.close();
+        }
+    }
+
+    /**
+     * sends {@code length} bytes once the handshake is complete, and counts what it receives
+     */
+    private final class Peer extends AbstractSocketBufferHandler {
+        private static final int APPLICATION_DATA = 23;
+        private final ChronicleSocketChannel channel;
+        private final int length;
+        private final int chunk;
+        // the cipher text sent after the handshake
+        private final ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        SslEngineStateMachine stateMachine;
+        int written;
+        int received;
+
+        Peer(@NotNull final ChronicleSocketChannel channel, final int length, final int chunk) {
+            super(channel);
+            this.channel = channel;
+            this.length = length;
+            this.chunk = chunk;
+        }
+
+        void initialise(final boolean isAcceptor, @Nullable final DelegatedTaskExecutor tasks) {
+            stateMachine = new SslEngineStateMachine(this, isAcceptor);
+            stateMachine.initialise(context, channel, tasks, sessionCache);
+        }
+
+        @Override
+        public void handleDecryptedData(final ByteBuffer input, final ByteBuffer output) {
+            // called with the input before it is flipped too, when it is empty as it is always consumed
+            if (input.hasRemaining() && input.remaining() != input.capacity()) {
+                received += input.remaining();
+                input.position(input.limit());
+            }
+            if (stateMachine != null && stateMachine.isHandshakeComplete()) {
+                final int toWrite = Math.min(Math.min(chunk, length - written), output.remaining());
+                for (int i = 0; i < toWrite; i++)
+                    output.put((byte) written++);
+            }
+        }
+
+        @Override
+        public int writeData(final ByteBuffer encrypted) throws IOException {
+            final int position = encrypted.position();
+            final int wrote = super.writeData(encrypted);
+            if (wrote > 0 && stateMachine.isHandshakeComplete())
+                for (int i = position; i < position + wrote; i++)
+                    sent.write(encrypted.get(i));
+            return wrote;
+        }
+
+        /**
+         * @return the number of application data records sent
+         */
+        int records() {
+            return (int) recordLengths().count();
+        }
+
+        int largestRecord() {
+            return recordLengths().max().orElse(0);
+        }
+
+        private IntStream recordLengths() {
+            final ByteBuffer bb = ByteBuffer.wrap(sent.toByteArray());
+            final IntStream.Builder lengths = IntStream.builder();
+            // a record has a type, version and length before its content
+            while (bb.remaining() >= 5) {
+                final int type = bb.get();
+                bb.getShort();
+                final int recordLength = bb.getShort() & 0xFFFF;
+                if (type == APPLICATION_DATA)
+                    lengths.add(recordLength);
+                bb.position(bb.position() + recordLength);
+            }
+            return lengths.build();
+        }
+
+        void close() {
+            if (stateMachine != null)
+                stateMachine.release();
+            Closeable.closeQuietly(channel);
+        }
+    }
+}